@@ -25,6 +25,15 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.stumbleupon.async.Callback;
+import com.stumbleupon.async.Deferred;
 
 import org.hbase.async.Bytes;
 import org.hbase.async.Config;
@@ -35,6 +44,7 @@ import org.hbase.async.KeyValue;
 import org.hbase.async.PutRequest;
 import org.hbase.async.Scanner;
 
+import site.ycsb.AsyncDB;
 import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
 import site.ycsb.DBException;
@@ -49,8 +59,11 @@ import static site.ycsb.workloads.CoreWorkload.TABLENAME_PROPERTY_DEFAULT;
  * This client provides a subset of the main HBase client and uses a completely
  * asynchronous pipeline for all calls. It is particularly useful for write heavy
  * workloads. It is also compatible with all production versions of HBase. 
+ * 
+ * Operations complete through callbacks on the returned Deferreds, so with
+ * pipeline.depth above 1 each client thread keeps several of them in flight.
  */
-public class AsyncHBaseClient extends site.ycsb.DB {
+public class AsyncHBaseClient extends AsyncDB {
   public static final Charset UTF8_CHARSET = Charset.forName("UTF8");
   private static final String CLIENT_SIDE_BUFFERING_PROPERTY = "clientbuffering";
   private static final String DURABILITY_PROPERTY = "durability";
@@ -68,6 +81,9 @@ public class AsyncHBaseClient extends site.ycsb.DB {
   
   /** The client that's used for all threads. */
   private static HBaseClient client;
+
+  /** Fails the operations that have not completed within jointimeout. */
+  private static ScheduledExecutorService timeouts;
   
   /** Print debug information to standard out. */
   private boolean debug = false;
@@ -140,6 +156,11 @@ public class AsyncHBaseClient extends site.ycsb.DB {
             config = new Config(configPath);
           }
           client = new HBaseClient(config);
+          timeouts = Executors.newSingleThreadScheduledExecutor(r -> {
+              final Thread thread = new Thread(r, "AsyncHBaseClient timeouts");
+              thread.setDaemon(true);
+              return thread;
+            });
           
           // Terminate right now if table does not exist, since the client
           // will not propagate this error upstream once the workload
@@ -191,13 +212,15 @@ public class AsyncHBaseClient extends site.ycsb.DB {
               + "properly: " + e.getMessage());
         }
         client = null;
+        timeouts.shutdownNow();
+        timeouts = null;
       }
     }
   }
   
   @Override
-  public Status read(String table, String key, Set<String> fields,
-                     Map<String, ByteIterator> result) {
+  public CompletableFuture<Status> readAsync(String table, String key,
+      Set<String> fields, Map<String, ByteIterator> result) {
     setTable(table);
     
     final GetRequest get = new GetRequest(
@@ -206,47 +229,39 @@ public class AsyncHBaseClient extends site.ycsb.DB {
       get.qualifiers(getQualifierList(fields));
     }
     
-    try {
-      if (debug) {
-        System.out.println("Doing read from HBase columnfamily " + 
-            Bytes.pretty(columnFamilyBytes));
-        System.out.println("Doing read for key: " + key);
-      }
-      
-      final ArrayList<KeyValue> row = client.get(get).join(joinTimeout);
-      if (row == null || row.isEmpty()) {
-        return Status.NOT_FOUND;
-      }
-      
-      // got something so populate the results
-      for (final KeyValue column : row) {
-        result.put(new String(column.qualifier()), 
-            // TODO - do we need to clone this array? YCSB may keep it in memory
-            // for a while which would mean the entire KV would hang out and won't
-            // be GC'd.
-            new ByteArrayByteIterator(column.value()));
+    if (debug) {
+      System.out.println("Doing read from HBase columnfamily " + 
+          Bytes.pretty(columnFamilyBytes));
+      System.out.println("Doing read for key: " + key);
+    }
+    
+    return complete(client.get(get), row -> {
+        if (row == null || row.isEmpty()) {
+          return Status.NOT_FOUND;
+        }
         
-        if (debug) {
-          System.out.println(
-              "Result for field: " + Bytes.pretty(column.qualifier())
-                  + " is: " + Bytes.pretty(column.value()));
+        // got something so populate the results
+        for (final KeyValue column : row) {
+          result.put(new String(column.qualifier()), 
+              // TODO - do we need to clone this array? YCSB may keep it in memory
+              // for a while which would mean the entire KV would hang out and won't
+              // be GC'd.
+              new ByteArrayByteIterator(column.value()));
+          
+          if (debug) {
+            System.out.println(
+                "Result for field: " + Bytes.pretty(column.qualifier())
+                    + " is: " + Bytes.pretty(column.value()));
+          }
         }
-      }
-      return Status.OK;
-    } catch (InterruptedException e) {
-      System.err.println("Thread interrupted");
-      Thread.currentThread().interrupt();
-    } catch (Exception e) {
-      System.err.println("Failure reading from row with key " + key + 
-          ": " + e.getMessage());
-      return Status.ERROR;
-    }
-    return Status.ERROR;
+        return Status.OK;
+      }, key);
   }
 
   @Override
-  public Status scan(String table, String startkey, int recordcount,
-      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+  public CompletableFuture<Status> scanAsync(String table, String startkey,
+      int recordcount, Set<String> fields,
+      Vector<HashMap<String, ByteIterator>> result) {
     setTable(table);
     
     final Scanner scanner = client.newScanner(lastTableBytes);
@@ -258,49 +273,78 @@ public class AsyncHBaseClient extends site.ycsb.DB {
     }
     
     // no filters? *sniff*
-    ArrayList<ArrayList<KeyValue>> rows = null;
-    try {
-      int numResults = 0;
-      while ((rows = scanner.nextRows().join(joinTimeout)) != null) {
-        for (final ArrayList<KeyValue> row : rows) {
-          final HashMap<String, ByteIterator> rowResult =
-              new HashMap<String, ByteIterator>(row.size());
-          for (final KeyValue column : row) {
-            rowResult.put(new String(column.qualifier()), 
-                // TODO - do we need to clone this array? YCSB may keep it in memory
-                // for a while which would mean the entire KV would hang out and won't
-                // be GC'd.
-                new ByteArrayByteIterator(column.value()));
-            if (debug) {
-              System.out.println("Got scan result for key: " + 
-                  Bytes.pretty(column.key()));
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    nextRows(scanner, startkey, recordcount, result, future);
+    return timeout(future, startkey);
+  }
+
+  /**
+   * Fetch the next rows of a scan, and once they arrive add them to the
+   * result and either fetch more or close the scanner and complete the scan.
+   * @param scanner The scanner of the scan.
+   * @param startkey The start key of the scan, for error messages.
+   * @param recordcount The number of rows the scan returns at most.
+   * @param result The rows returned so far.
+   * @param future Completed with the status of the scan.
+   */
+  private void nextRows(final Scanner scanner, final String startkey,
+      final int recordcount, final Vector<HashMap<String, ByteIterator>> result,
+      final CompletableFuture<Status> future) {
+    scanner.nextRows().addCallbacks(
+        new Callback<Object, ArrayList<ArrayList<KeyValue>>>() {
+          @Override
+          public Object call(final ArrayList<ArrayList<KeyValue>> rows) {
+            if (future.isDone()) {
+              // timed out
+              scanner.close();
+              return null;
             }
-          }
-          result.add(rowResult);
-          numResults++;
+            if (rows != null) {
+              for (final ArrayList<KeyValue> row : rows) {
+                final HashMap<String, ByteIterator> rowResult =
+                    new HashMap<String, ByteIterator>(row.size());
+                for (final KeyValue column : row) {
+                  rowResult.put(new String(column.qualifier()), 
+                      // TODO - do we need to clone this array? YCSB may keep it in memory
+                      // for a while which would mean the entire KV would hang out and won't
+                      // be GC'd.
+                      new ByteArrayByteIterator(column.value()));
+                  if (debug) {
+                    System.out.println("Got scan result for key: " + 
+                        Bytes.pretty(column.key()));
+                  }
+                }
+                result.add(rowResult);
 
-          if (numResults >= recordcount) {// if hit recordcount, bail out
-            break;
+                if (result.size() >= recordcount) {// if hit recordcount, bail out
+                  break;
+                }
+              }
+              if (result.size() < recordcount) {
+                nextRows(scanner, startkey, recordcount, result, future);
+                return null;
+              }
+            }
+            scanner.close();
+            future.complete(Status.OK);
+            return null;
           }
-        }
-      }
-      scanner.close().join(joinTimeout);
-      return Status.OK;
-    } catch (InterruptedException e) {
-      System.err.println("Thread interrupted");
-      Thread.currentThread().interrupt();
-    } catch (Exception e) {
-      System.err.println("Failure reading from row with key " + startkey + 
-          ": " + e.getMessage());
-      return Status.ERROR;
-    }
-    
-    return Status.ERROR;
+        },
+        new Callback<Object, Exception>() {
+          @Override
+          public Object call(final Exception e) {
+            System.err.println("Failure reading from row with key " + startkey + 
+                ": " + e.getMessage());
+            scanner.close();
+            future.complete(Status.ERROR);
+            return null;
+          }
+        });
   }
 
   @Override
-  public Status update(String table, String key,
-                       Map<String, ByteIterator> values) {
+  public CompletableFuture<Status> updateAsync(String table, String key,
+      Map<String, ByteIterator> values) {
     setTable(table);
     
     if (debug) {
@@ -327,33 +371,23 @@ public class AsyncHBaseClient extends site.ycsb.DB {
     }
     if (!clientSideBuffering) {
       put.setBufferable(false);
-      try {
-        client.put(put).join(joinTimeout);
-      } catch (InterruptedException e) {
-        System.err.println("Thread interrupted");
-        Thread.currentThread().interrupt();
-      } catch (Exception e) {
-        System.err.println("Failure reading from row with key " + key + 
-            ": " + e.getMessage());
-        return Status.ERROR;
-      }
-    } else {
-      // hooray! Asynchronous write. But without a callback and an async
-      // YCSB call we don't know whether it succeeded or not
-      client.put(put);
+      return complete(client.put(put), ignored -> Status.OK, key);
     }
-    
-    return Status.OK;
+
+    // hooray! Asynchronous write. But the buffered put is only sent when
+    // the buffer is flushed, so we don't know whether it succeeded or not
+    client.put(put);
+    return CompletableFuture.completedFuture(Status.OK);
   }
 
   @Override
-  public Status insert(String table, String key,
-                       Map<String, ByteIterator> values) {
-    return update(table, key, values);
+  public CompletableFuture<Status> insertAsync(String table, String key,
+      Map<String, ByteIterator> values) {
+    return updateAsync(table, key, values);
   }
 
   @Override
-  public Status delete(String table, String key) {
+  public CompletableFuture<Status> deleteAsync(String table, String key) {
     setTable(table);
     
     if (debug) {
@@ -367,22 +401,109 @@ public class AsyncHBaseClient extends site.ycsb.DB {
     }
     if (!clientSideBuffering) {
       delete.setBufferable(false);
-      try {
-        client.delete(delete).join(joinTimeout);
-      } catch (InterruptedException e) {
-        System.err.println("Thread interrupted");
-        Thread.currentThread().interrupt();
-      } catch (Exception e) {
-        System.err.println("Failure reading from row with key " + key + 
-            ": " + e.getMessage());
-        return Status.ERROR;
-      }
-    } else {
-      // hooray! Asynchronous write. But without a callback and an async
-      // YCSB call we don't know whether it succeeded or not
-      client.delete(delete);
+      return complete(client.delete(delete), ignored -> Status.OK, key);
+    }
+
+    // hooray! Asynchronous write. But the buffered delete is only sent when
+    // the buffer is flushed, so we don't know whether it succeeded or not
+    client.delete(delete);
+    return CompletableFuture.completedFuture(Status.OK);
+  }
+
+  @Override
+  public Status read(String table, String key, Set<String> fields,
+                     Map<String, ByteIterator> result) {
+    return join(readAsync(table, key, fields, result));
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    return join(scanAsync(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public Status update(String table, String key,
+                       Map<String, ByteIterator> values) {
+    return join(updateAsync(table, key, values));
+  }
+
+  @Override
+  public Status insert(String table, String key,
+                       Map<String, ByteIterator> values) {
+    return join(insertAsync(table, key, values));
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    return join(deleteAsync(table, key));
+  }
+
+  /**
+   * Little helper to complete a future with the status of an HBase request.
+   * @param deferred The pending request.
+   * @param toStatus Derives the status from the request's result.
+   * @param key The key of the request, for error messages.
+   * @return A future completed with the status, or with an error if the
+   * request fails.
+   */
+  private <T> CompletableFuture<Status> complete(final Deferred<T> deferred,
+      final Function<T, Status> toStatus, final String key) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    deferred.addCallbacks(
+        new Callback<Object, T>() {
+          @Override
+          public Object call(final T arg) {
+            future.complete(toStatus.apply(arg));
+            return null;
+          }
+        },
+        new Callback<Object, Exception>() {
+          @Override
+          public Object call(final Exception e) {
+            System.err.println("Failure on row with key " + key + 
+                ": " + e.getMessage());
+            future.complete(Status.ERROR);
+            return null;
+          }
+        });
+    return timeout(future, key);
+  }
+
+  /**
+   * Little helper to complete a future with an error if the operation has
+   * not completed within jointimeout milliseconds, so that a lost request
+   * does not keep its place in the pipeline forever.
+   * @param future The pending operation.
+   * @param key The key of the operation, for error messages.
+   * @return The future.
+   */
+  private CompletableFuture<Status> timeout(final CompletableFuture<Status> future, final String key) {
+    final ScheduledFuture<?> timeout = timeouts.schedule(() -> {
+        if (future.complete(Status.ERROR)) {
+          System.err.println("Timed out on row with key " + key);
+        }
+      }, joinTimeout, TimeUnit.MILLISECONDS);
+    future.whenComplete((status, e) -> timeout.cancel(false));
+    return future;
+  }
+
+  /**
+   * Little helper to wait for an operation to complete, at most jointimeout
+   * milliseconds.
+   * @param future The pending operation.
+   * @return The status of the operation, or an error if it times out.
+   */
+  private Status join(final CompletableFuture<Status> future) {
+    try {
+      return future.get(joinTimeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      System.err.println("Thread interrupted");
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      System.err.println("Failure waiting for operation: " + e.getMessage());
     }
-    return Status.OK;
+    return Status.ERROR;
   }
 
   /**
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * An open-loop schedule of operation arrivals shared by all client threads
+ * (see the "arrival.distribution" property).
+ *
+ * Arrivals come at the target rate whether or not the clients keep up: a
+ * free client thread takes the next arrival and issues its operation at the
+ * arrival time, or at once if that time has passed. The arrival time is the
+ * operation's intended start time, so time spent queued behind busy clients
+ * counts towards intended latency.
+ *
+ * The gaps between arrivals are exponentially distributed (poisson), or
+ * uniformly distributed between 0 and twice the mean gap (uniform). The
+ * schedule starts when the first arrival is taken, and starts again when
+ * the target rate is restarted. With no target rate, operations arrive
+ * as soon as a client thread is free. While the target rate is 0 nothing
+ * arrives, and the schedule resumes when the rate becomes positive.
+ *
+ * Each start of the schedule publishes a new arrival counter together with
+ * the restart it belongs to, so no thread takes an arrival from a schedule
+ * that has been replaced.
+ */
+public final class ArrivalSchedule {
+  /**
+   * How often a paused schedule checks whether its rate has become positive.
+   */
+  static final long PAUSE_POLL_NS = 1000000;
+
+  private final TargetRate rate;
+  private final boolean poisson;
+  private final AtomicReference<Schedule> schedule = new AtomicReference<>(new Schedule(-1, 0));
+
+  /**
+   * The arrivals since a start of the schedule.
+   */
+  private static final class Schedule {
+    private final long epoch;
+    private final AtomicLong next;
+
+    Schedule(long epoch, long startNs) {
+      this.epoch = epoch;
+      this.next = new AtomicLong(startNs);
+    }
+  }
+
+  /**
+   * @param rate the arrival rate.
+   * @param poisson true for exponentially distributed gaps, false for uniformly distributed gaps.
+   */
+  public ArrivalSchedule(TargetRate rate, boolean poisson) {
+    this.rate = rate;
+    this.poisson = poisson;
+  }
+
+  /**
+   * Take the next arrival, waiting while the rate is 0.
+   *
+   * @return the arrival time, in System.nanoTime() terms.
+   */
+  public long next() {
+    return next(() -> false);
+  }
+
+  /**
+   * Take the next arrival, waiting while the rate is 0 unless stopped.
+   *
+   * @param stopped whether to give up waiting for the rate to become positive.
+   * @return the arrival time, in System.nanoTime() terms, or -1 if stopped while waiting.
+   */
+  public long next(BooleanSupplier stopped) {
+    while (true) {
+      final long rateEpoch = rate.getEpoch();
+      Schedule current = schedule.get();
+      while (current.epoch < rateEpoch) {
+        final Schedule started = new Schedule(rateEpoch, System.nanoTime());
+        current = schedule.compareAndSet(current, started) ? started : schedule.get();
+      }
+
+      final double opsPerSec = rate.get();
+      if (opsPerSec > 0) {
+        return current.next.getAndAdd(gap(1000000000 / opsPerSec));
+      }
+
+      // Nothing arrives while the rate is 0, so the schedule resumes from when it becomes positive.
+      if (stopped.getAsBoolean()) {
+        return -1;
+      }
+      LockSupport.parkNanos(PAUSE_POLL_NS);
+      current.next.accumulateAndGet(System.nanoTime(), Math::max);
+    }
+  }
+
+  private long gap(double meanGapNs) {
+    final double u = ThreadLocalRandom.current().nextDouble();
+    if (poisson) {
+      return (long) (-Math.log(1 - u) * meanGapNs);
+    }
+    return (long) (2 * u * meanGapNs);
+  }
+}
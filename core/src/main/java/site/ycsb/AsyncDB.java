@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A DB whose operations complete asynchronously, so that a client thread can
+ * keep several of them in flight (see the "pipeline.depth" property).
+ *
+ * The future of an operation completes with its status once the operation
+ * has completed, and the result map or vector passed to a read or scan is
+ * filled in by then. A future completed exceptionally counts as
+ * Status.ERROR.
+ *
+ * The synchronous operations issue the asynchronous ones and wait for them,
+ * so a binding only implements the asynchronous operations.
+ */
+public abstract class AsyncDB extends DB {
+  /**
+   * Read a record from the database asynchronously.
+   *
+   * @see DB#read(String, String, Set, Map)
+   */
+  public abstract CompletableFuture<Status> readAsync(String table, String key, Set<String> fields,
+                                                      Map<String, ByteIterator> result);
+
+  /**
+   * Perform a range scan for a set of records in the database asynchronously.
+   *
+   * @see DB#scan(String, String, int, Set, Vector)
+   */
+  public abstract CompletableFuture<Status> scanAsync(String table, String startkey, int recordcount,
+                                                      Set<String> fields,
+                                                      Vector<HashMap<String, ByteIterator>> result);
+
+  /**
+   * Update a record in the database asynchronously.
+   *
+   * @see DB#update(String, String, Map)
+   */
+  public abstract CompletableFuture<Status> updateAsync(String table, String key, Map<String, ByteIterator> values);
+
+  /**
+   * Insert a record in the database asynchronously.
+   *
+   * @see DB#insert(String, String, Map)
+   */
+  public abstract CompletableFuture<Status> insertAsync(String table, String key, Map<String, ByteIterator> values);
+
+  /**
+   * Delete a record from the database asynchronously.
+   *
+   * @see DB#delete(String, String)
+   */
+  public abstract CompletableFuture<Status> deleteAsync(String table, String key);
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    return await(readAsync(table, key, fields, result));
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                     Vector<HashMap<String, ByteIterator>> result) {
+    return await(scanAsync(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public Status update(String table, String key, Map<String, ByteIterator> values) {
+    return await(updateAsync(table, key, values));
+  }
+
+  @Override
+  public Status insert(String table, String key, Map<String, ByteIterator> values) {
+    return await(insertAsync(table, key, values));
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    return await(deleteAsync(table, key));
+  }
+
+  /**
+   * Wait for an operation to complete.
+   *
+   * @return the status of the operation, Status.ERROR if it failed with an exception or was cancelled.
+   */
+  public static Status await(CompletableFuture<Status> future) {
+    try {
+      return future.join();
+    } catch (CompletionException | CancellationException e) {
+      e.printStackTrace();
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Return a DB as an AsyncDB: an AsyncDB as it is, and any other DB wrapped
+   * by an adapter whose operations run on the calling thread and return
+   * already completed futures.
+   */
+  public static AsyncDB adapt(DB db) {
+    return db instanceof AsyncDB ? (AsyncDB) db : new Adapter(db);
+  }
+
+  /**
+   * Presents a synchronous DB as an AsyncDB.
+   */
+  private static final class Adapter extends AsyncDB {
+    private final DB db;
+
+    Adapter(DB db) {
+      this.db = db;
+    }
+
+    @Override
+    public void setProperties(Properties p) {
+      db.setProperties(p);
+    }
+
+    @Override
+    public Properties getProperties() {
+      return db.getProperties();
+    }
+
+    @Override
+    public void init() throws DBException {
+      db.init();
+    }
+
+    @Override
+    public void cleanup() throws DBException {
+      db.cleanup();
+    }
+
+    @Override
+    public CompletableFuture<Status> readAsync(String table, String key, Set<String> fields,
+                                               Map<String, ByteIterator> result) {
+      return CompletableFuture.completedFuture(db.read(table, key, fields, result));
+    }
+
+    @Override
+    public CompletableFuture<Status> scanAsync(String table, String startkey, int recordcount, Set<String> fields,
+                                               Vector<HashMap<String, ByteIterator>> result) {
+      return CompletableFuture.completedFuture(db.scan(table, startkey, recordcount, fields, result));
+    }
+
+    @Override
+    public CompletableFuture<Status> updateAsync(String table, String key, Map<String, ByteIterator> values) {
+      return CompletableFuture.completedFuture(db.update(table, key, values));
+    }
+
+    @Override
+    public CompletableFuture<Status> insertAsync(String table, String key, Map<String, ByteIterator> values) {
+      return CompletableFuture.completedFuture(db.insert(table, key, values));
+    }
+
+    @Override
+    public CompletableFuture<Status> deleteAsync(String table, String key) {
+      return CompletableFuture.completedFuture(db.delete(table, key));
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return db.read(table, key, fields, result);
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return db.scan(table, startkey, recordcount, fields, result);
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return db.update(table, key, values);
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return db.insert(table, key, values);
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return db.delete(table, key);
+    }
+
+    @Override
+    public Status batchRead(String table, List<String> keys, Set<String> fields,
+                            List<Map<String, ByteIterator>> results) {
+      return db.batchRead(table, keys, fields, results);
+    }
+
+    @Override
+    public Status batchInsert(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+      return db.batchInsert(table, keys, values);
+    }
+
+    @Override
+    public Status batchUpdate(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+      return db.batchUpdate(table, keys, values);
+    }
+
+    @Override
+    public Status sync() {
+      return db.sync();
+    }
+
+    @Override
+    public Status prefixDelete(String table, String prefix) {
+      return db.prefixDelete(table, prefix);
+    }
+  }
+}
@@ -9,20 +9,25 @@
 package site.ycsb;
 
 import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.OneMeasurementHdrHistogram;
 import site.ycsb.measurements.exporter.MeasurementsExporter;
 import site.ycsb.measurements.exporter.TextMeasurementsExporter;
 import org.apache.htrace.core.HTraceConfiguration;
 import org.apache.htrace.core.TraceScope;
 import org.apache.htrace.core.Tracer;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Turn seconds remaining into more useful units.
@@ -120,6 +125,11 @@ public final class Client {
    */
   public static final String TARGET_PROPERTY = "target";
 
+  /**
+   * A schedule for the target throughput, instead of a constant target: see {@link TargetProfile}.
+   */
+  public static final String TARGET_PROFILE_PROPERTY = "target.profile";
+
   /**
    * The maximum amount of time (in seconds) for which the benchmark will be run.
    */
@@ -130,6 +140,69 @@ public final class Client {
    */
   public static final String DO_TRANSACTIONS_PROPERTY = "dotransactions";
 
+  /**
+   * The number of operations each client thread keeps in flight. Above 1, operations are issued
+   * asynchronously through {@link AsyncDB}, which rules out dataintegrity, and requestdistribution=latest with
+   * inserts.
+   */
+  public static final String PIPELINE_DEPTH_PROPERTY = "pipeline.depth";
+
+  /**
+   * The default pipeline depth: one operation at a time.
+   */
+  public static final String PIPELINE_DEPTH_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The kind of thread the clients run on: "platform", or "virtual" for virtual threads where the JVM
+   * supports them (Java 21 or later), which makes very large thread counts affordable.
+   */
+  public static final String THREAD_MODE_PROPERTY = "threadmode";
+
+  /**
+   * The default thread mode: platform threads.
+   */
+  public static final String THREAD_MODE_PROPERTY_DEFAULT = "platform";
+
+  /**
+   * The number of DB instances the client threads share. 0 gives each client thread its own DB instance.
+   */
+  public static final String DB_INSTANCES_PROPERTY = "db.instances";
+
+  /**
+   * The default number of DB instances: one per client thread.
+   */
+  public static final String DB_INSTANCES_PROPERTY_DEFAULT = "0";
+
+  /**
+   * How operations arrive when there is a target: "fixed" issues each thread's operations at fixed intervals,
+   * while "poisson" and "uniform" take them from an open-loop {@link ArrivalSchedule} shared by all threads.
+   */
+  public static final String ARRIVAL_DISTRIBUTION_PROPERTY = "arrival.distribution";
+
+  /**
+   * The default arrival distribution: fixed intervals.
+   */
+  public static final String ARRIVAL_DISTRIBUTION_PROPERTY_DEFAULT = "fixed";
+
+  /**
+   * How the transaction phase is run: "run" runs it at the target throughput, while "saturate" searches for the
+   * highest throughput that meets a latency SLO (see {@link SaturationThread}).
+   */
+  public static final String MODE_PROPERTY = "mode";
+
+  /**
+   * The default mode: a single run.
+   */
+  public static final String MODE_PROPERTY_DEFAULT = "run";
+
+  /**
+   * A comma separated list of phases run one after the other by the same DB instances, e.g.
+   * "load,run:workloada,run:workloadc:operationcount=5000". Each phase is "load" or "run", optionally followed by
+   * a workload file and property=value settings, separated by colons. The measurements of each phase are
+   * exported separately.
+   */
+  public static final String PHASES_PROPERTY = "phases";
+
   /**
    * Whether or not to show status during run.
    */
@@ -145,6 +218,29 @@ public final class Client {
    */
   private static StatusThread statusthread = null;
 
+  /**
+   * The thread running the steps of the saturation search, in saturate mode.
+   */
+  private static SaturationThread saturationthread = null;
+
+  /**
+   * The thread ending the warm-up, if there is one.
+   */
+  private static WarmupThread warmupthread = null;
+
+  /**
+   * How long the phase took to initialize its workload, then its DB instances and client threads, and from its
+   * start to its first operations, in ms.
+   */
+  private static long workloadinittime;
+  private static long dbinittime;
+  private static long timetofirstop;
+
+  /**
+   * The properties given on the command line, which take precedence over the workload file of a phase.
+   */
+  private static Properties commandlineprops = new Properties();
+
   // HTrace integration related constants.
 
   /**
@@ -200,9 +296,10 @@ public final class Client {
    * Exports the measurements to either sysout or a file using the exporter
    * loaded from conf.
    *
+   * @param phase the number of the phase, counting from 1, or 0 if there are no phases.
    * @throws IOException Either failed to write to output stream or failed to close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
+  private static void exportMeasurements(Properties props, int phase, long opcount, long runtime)
       throws IOException {
     MeasurementsExporter exporter = null;
     try {
@@ -210,7 +307,13 @@ public final class Client {
       OutputStream out;
       String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
       if (exportFile == null) {
-        out = System.out;
+        // keep stdout open for the phases that follow
+        out = new FilterOutputStream(System.out) {
+          @Override
+          public void close() throws IOException {
+            flush();
+          }
+        };
       } else {
         out = new FileOutputStream(exportFile);
       }
@@ -228,8 +331,24 @@ public final class Client {
         exporter = new TextMeasurementsExporter(out);
       }
 
+      if (phase > 0) {
+        exporter.write("PHASE", "Number", phase);
+      }
+      exporter.write("STARTUP", "WorkloadInit(ms)", workloadinittime);
+      exporter.write("STARTUP", "DBInit(ms)", dbinittime);
+      exporter.write("STARTUP", "TimeToFirstOp(ms)", timetofirstop);
       exporter.write("OVERALL", "RunTime(ms)", runtime);
-      double throughput = 1000.0 * (opcount) / (runtime);
+
+      // the throughput of the measured window, after the warm-up
+      long measuredops = opcount;
+      long measuredtime = runtime;
+      if (warmupthread != null && warmupthread.isDone()) {
+        exporter.write("WARMUP", "RunTime(ms)", warmupthread.getTimeMs());
+        exporter.write("WARMUP", "Operations", warmupthread.getOps());
+        measuredops -= warmupthread.getOps();
+        measuredtime -= warmupthread.getTimeMs();
+      }
+      double throughput = 1000.0 * (measuredops) / (measuredtime);
       exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
 
       final Map<String, Long[]> gcs = Utils.getGCStatst();
@@ -256,6 +375,10 @@ public final class Client {
         exporter.write("MIN_SYS_LOAD_AVG", "Load", statusthread.getMinLoadAvg());
       }
 
+      if (saturationthread != null) {
+        saturationthread.exportMeasurements(exporter);
+      }
+
       Measurements.getMeasurements().exportMeasurements(exporter);
     } finally {
       if (exporter != null) {
@@ -264,18 +387,132 @@ public final class Client {
     }
   }
 
-  @SuppressWarnings("unchecked")
   public static void main(String[] args) {
     Properties props = parseArguments(args);
 
-    boolean status = Boolean.valueOf(props.getProperty(STATUS_PROPERTY, String.valueOf(false)));
-    String label = props.getProperty(LABEL_PROPERTY, "");
+    Measurements.setProperties(props);
 
+    String phases = props.getProperty(PHASES_PROPERTY);
+    if (phases != null) {
+      runPhases(props, phases.split(","));
+    } else {
+      Workload workload = getWorkload(props);
+      runPhase(props, workload, getTracer(props, workload), null, 0, null);
+    }
+
+    System.exit(0);
+  }
+
+  /**
+   * Run the phases one after the other. The DB instances are created before the first phase, initialized by it and
+   * cleaned up after the last one, and told of the end of each phase with the properties of the next. The
+   * measurements are reset after each phase is exported.
+   */
+  private static void runPhases(Properties props, String[] phases) {
+    final List<Properties> phaseprops = new ArrayList<>(phases.length);
+    int maxthreadcount = 1;
+    try {
+      for (int i = 0; i < phases.length; i++) {
+        Properties p = getPhaseProperties(props, phases[i].trim(), i + 1);
+        maxthreadcount = Math.max(maxthreadcount, Integer.parseInt(p.getProperty(THREAD_COUNT_PROPERTY, "1")));
+        phaseprops.add(p);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Invalid " + PHASES_PROPERTY + ": " + e.getMessage());
+      System.exit(0);
+    }
+
+    Measurements.setProperties(phaseprops.get(0));
+    Workload workload = getWorkload(phaseprops.get(0));
+    final Tracer tracer = getTracer(props, workload);
+
+    // the DB instances take the properties of the first phase, and are initialized by it
+    final List<DB> dbs = createDbs(phaseprops.get(0), maxthreadcount, tracer);
+
+    for (int i = 0; i < phases.length; i++) {
+      if (i > 0) {
+        workload = getWorkload(phaseprops.get(i));
+      }
+      System.err.println("Starting phase " + (i + 1) + ": " + phases[i].trim());
+      final Properties nextprops = i + 1 < phases.length ? phaseprops.get(i + 1) : null;
+      runPhase(phaseprops.get(i), workload, tracer, dbs, i + 1, nextprops);
+      if (nextprops != null) {
+        Measurements.getMeasurements().reset(nextprops);
+      }
+    }
+  }
+
+  /**
+   * Get the properties of a phase: those of the command line and its workload files, then those of the phase's
+   * workload file, if any, and the command line again, then the phase's own settings. Unless the phase sets its
+   * own export file, the number of the phase is appended to the export file, and likewise to the hdr interval log
+   * files.
+   *
+   * @param spec the phase, e.g. "run:workloada:operationcount=5000".
+   * @param number the number of the phase, counting from 1.
+   * @throws IOException if the workload file of the phase could not be read.
+   */
+  static Properties getPhaseProperties(Properties props, String spec, int number) throws IOException {
+    final String[] parts = spec.split(":");
+    if (!parts[0].equals("load") && !parts[0].equals("run")) {
+      throw new IllegalArgumentException("phase " + spec + " is neither load nor run");
+    }
+
+    final Properties phaseprops = new Properties();
+    phaseprops.putAll(props);
+    final Properties settings = new Properties();
+    for (int i = 1; i < parts.length; i++) {
+      int eq = parts[i].indexOf('=');
+      if (eq >= 0) {
+        settings.setProperty(parts[i].substring(0, eq), parts[i].substring(eq + 1));
+      } else {
+        phaseprops.putAll(loadWorkloadFile(parts[i]));
+        phaseprops.putAll(commandlineprops);
+      }
+    }
+    phaseprops.setProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(parts[0].equals("run")));
+    phaseprops.putAll(settings);
+
+    String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
+    if (exportFile != null && exportFile.equals(phaseprops.getProperty(EXPORT_FILE_PROPERTY))) {
+      phaseprops.setProperty(EXPORT_FILE_PROPERTY, exportFile + "." + number);
+    }
+    String hdrPath = props.getProperty(OneMeasurementHdrHistogram.OUTPUT_PATH_PROPERTY, "");
+    if (hdrPath.equals(phaseprops.getProperty(OneMeasurementHdrHistogram.OUTPUT_PATH_PROPERTY, ""))) {
+      phaseprops.setProperty(OneMeasurementHdrHistogram.OUTPUT_PHASE_PROPERTY, String.valueOf(number));
+    }
+    return phaseprops;
+  }
+
+  /**
+   * Load a workload file, looking for it in the workloads directory if it is not found as given.
+   */
+  private static Properties loadWorkloadFile(String name) throws IOException {
+    File file = new File(name);
+    if (!file.exists()) {
+      file = new File("workloads", name);
+    }
+    final Properties fileprops = new Properties();
+    try (FileInputStream in = new FileInputStream(file)) {
+      fileprops.load(in);
+    }
+    return fileprops;
+  }
+
+  /**
+   * Run the load or the transaction phase and export its measurements.
+   *
+   * @param dbs the DB instances shared by all phases, or null if the clients create their own.
+   * @param phase the number of the phase, counting from 1, or 0 if there are no phases.
+   * @param nextprops the properties of the next phase, or null to clean up the shared DB instances before exporting
+   *                  the measurements.
+   */
+  private static void runPhase(Properties props, Workload workload, Tracer tracer, List<DB> dbs, int phase,
+                               Properties nextprops) {
     long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
 
-    //get number of threads, target and db
+    //get number of threads and target
     int threadcount = Integer.parseInt(props.getProperty(THREAD_COUNT_PROPERTY, "1"));
-    String dbname = props.getProperty(DB_PROPERTY, "site.ycsb.BasicDB");
     int target = Integer.parseInt(props.getProperty(TARGET_PROPERTY, "0"));
 
     //compute the target throughput
@@ -285,59 +522,81 @@ public final class Client {
       targetperthreadperms = targetperthread / 1000.0;
     }
 
+    final long startupst = System.currentTimeMillis();
+
     Thread warningthread = setupWarningThread();
     warningthread.start();
 
-    Measurements.setProperties(props);
-
-    Workload workload = getWorkload(props);
-
-    final Tracer tracer = getTracer(props, workload);
-
     initWorkload(props, warningthread, workload, tracer);
 
+    final long workloadinitdone = System.currentTimeMillis();
+    workloadinittime = workloadinitdone - startupst;
+
     System.err.println("Starting test.");
     final CountDownLatch completeLatch = new CountDownLatch(threadcount);
 
-    final List<ClientThread> clients = initDb(dbname, props, threadcount, targetperthreadperms,
+    saturationthread = getSaturationThread(props, workload);
+
+    final List<ClientThread> clients = initDb(dbs, props, threadcount, targetperthreadperms,
         workload, tracer, completeLatch);
+    final TargetRate targetRate = initTargets(props, clients);
+    warmupthread = getWarmupThread(props, completeLatch, clients);
 
-    if (status) {
-      boolean standardstatus = false;
-      if (props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "").compareTo("timeseries") == 0) {
-        standardstatus = true;
-      }
-      int statusIntervalSeconds = Integer.parseInt(props.getProperty("status.interval", "10"));
-      boolean trackJVMStats = props.getProperty(Measurements.MEASUREMENT_TRACK_JVM_PROPERTY,
-          Measurements.MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT).equals("true");
-      statusthread = new StatusThread(completeLatch, clients, label, standardstatus, statusIntervalSeconds,
-          trackJVMStats);
-      statusthread.start();
+    if (dbs != null && phase == 1) {
+      initDbs(dbs, props, tracer);
+    }
+
+    final CountDownLatch initLatch = new CountDownLatch(clients.size());
+    for (ClientThread client : clients) {
+      client.setInitLatch(initLatch);
     }
 
     Thread terminator = null;
     long st;
     long en;
-    int opsDone;
+    long opsDone;
 
     try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
 
+      final ThreadFactory threadFactory = getThreadFactory(props);
       final Map<Thread, ClientThread> threads = new HashMap<>(threadcount);
       for (ClientThread client : clients) {
-        threads.put(new Thread(tracer.wrap(client, "ClientThread")), client);
+        threads.put(threadFactory.newThread(tracer.wrap(client, "ClientThread")), client);
       }
 
-      st = System.currentTimeMillis();
-
       for (Thread t : threads.keySet()) {
         t.start();
       }
 
+      // the clients initialize in parallel, then all start together
+      try {
+        initLatch.await();
+      } catch (InterruptedException ignored) {
+        // ignored
+      }
+
+      if (targetRate != null) {
+        targetRate.start();
+      }
+      st = System.currentTimeMillis();
+      dbinittime = st - workloadinitdone;
+      timetofirstop = st - startupst;
+
+      if (warmupthread != null) {
+        warmupthread.start();
+      }
+
+      statusthread = getStatusThread(props, completeLatch, clients, targetRate);
+
       if (maxExecutionTime > 0) {
         terminator = new TerminatorThread(maxExecutionTime, threads.keySet(), workload);
         terminator.start();
       }
 
+      if (saturationthread != null) {
+        saturationthread.start();
+      }
+
       opsDone = 0;
 
       for (Map.Entry<Thread, ClientThread> entry : threads.entrySet()) {
@@ -349,6 +608,13 @@ public final class Client {
         }
       }
 
+      if (dbs != null) {
+        // the operations still in flight belong to this phase
+        for (DB db : dbs) {
+          DBWrapper.drain(db);
+        }
+      }
+
       en = System.currentTimeMillis();
     }
 
@@ -359,20 +625,23 @@ public final class Client {
           terminator.interrupt();
         }
 
-        if (status) {
-          // wake up status thread if it's asleep
-          statusthread.interrupt();
-          // at this point we assume all the monitored threads are already gone as per above join loop.
-          try {
-            statusthread.join();
-          } catch (InterruptedException ignored) {
-            // ignored
-          }
-        }
+        stopThread(saturationthread);
+        stopThread(statusthread);
 
         workload.cleanup();
+
+        if (dbs != null) {
+          for (DB db : dbs) {
+            db.endPhase(nextprops);
+          }
+          if (nextprops == null) {
+            for (DB db : dbs) {
+              db.cleanup();
+            }
+          }
+        }
       }
-    } catch (WorkloadException e) {
+    } catch (WorkloadException | DBException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
       System.exit(0);
@@ -380,50 +649,154 @@ public final class Client {
 
     try {
       try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
-        exportMeasurements(props, opsDone, en - st);
+        exportMeasurements(props, phase, opsDone, en - st);
       }
     } catch (IOException e) {
       System.err.println("Could not export measurements, error: " + e.getMessage());
       e.printStackTrace();
       System.exit(-1);
     }
+  }
 
-    System.exit(0);
+  /**
+   * Initialize the DB instances shared by the phases, each in its own thread.
+   */
+  private static void initDbs(List<DB> dbs, Properties props, Tracer tracer) {
+    final ThreadFactory threadFactory = getThreadFactory(props);
+    final AtomicBoolean initFailed = new AtomicBoolean();
+    final List<Thread> threads = new ArrayList<>(dbs.size());
+    try (final TraceScope span = tracer.newScope(CLIENT_INIT_SPAN)) {
+      for (DB db : dbs) {
+        Thread t = threadFactory.newThread(() -> initDb(db, initFailed));
+        t.start();
+        threads.add(t);
+      }
+      for (Thread t : threads) {
+        try {
+          t.join();
+        } catch (InterruptedException ignored) {
+          // ignored
+        }
+      }
+    }
+
+    if (initFailed.get()) {
+      System.err.println("Error initializing datastore bindings.");
+      System.exit(0);
+    }
+  }
+
+  private static void initDb(DB db, AtomicBoolean initFailed) {
+    try {
+      db.init();
+    } catch (DBException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      initFailed.set(true);
+    }
+  }
+
+  /**
+   * Get the thread showing the status, or null if the status is not shown.
+   */
+  private static StatusThread getStatusThread(Properties props, CountDownLatch completeLatch,
+                                              List<ClientThread> clients, TargetRate targetRate) {
+    boolean status = Boolean.valueOf(props.getProperty(STATUS_PROPERTY, String.valueOf(false)));
+    if (!status) {
+      return null;
+    }
+    boolean standardstatus = false;
+    if (props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "").compareTo("timeseries") == 0) {
+      standardstatus = true;
+    }
+    int statusIntervalSeconds = Integer.parseInt(props.getProperty("status.interval", "10"));
+    boolean trackJVMStats = props.getProperty(Measurements.MEASUREMENT_TRACK_JVM_PROPERTY,
+        Measurements.MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT).equals("true");
+    String label = props.getProperty(LABEL_PROPERTY, "");
+    StatusThread thread = new StatusThread(completeLatch, clients, label, standardstatus, statusIntervalSeconds,
+        trackJVMStats);
+    thread.setTargetRate(targetRate);
+    thread.start();
+    return thread;
   }
 
-  private static List<ClientThread> initDb(String dbname, Properties props, int threadcount,
+  /**
+   * Wake up a helper thread, if there is one, and wait for it to finish. At this point all the client threads
+   * are gone, so the saturation search and the status are done.
+   */
+  private static void stopThread(Thread thread) {
+    if (thread == null) {
+      return;
+    }
+    thread.interrupt();
+    try {
+      thread.join();
+    } catch (InterruptedException ignored) {
+      // ignored
+    }
+  }
+
+  /**
+   * Create the DB instances, one per client thread, or fewer, shared round robin, with db.instances.
+   */
+  private static List<DB> createDbs(Properties props, int threadcount, Tracer tracer) {
+    String dbname = props.getProperty(DB_PROPERTY, "site.ycsb.BasicDB");
+    int dbinstances = Integer.parseInt(props.getProperty(DB_INSTANCES_PROPERTY, DB_INSTANCES_PROPERTY_DEFAULT));
+    if (dbinstances <= 0 || dbinstances > threadcount) {
+      dbinstances = threadcount;
+    }
+
+    final List<DB> dbs = new ArrayList<>(dbinstances);
+    for (int i = 0; i < dbinstances; i++) {
+      DB db;
+      try {
+        db = DBFactory.newDB(dbname, props, tracer);
+      } catch (UnknownDBException e) {
+        System.out.println("Unknown DB " + dbname);
+        System.err.println("Error initializing datastore bindings.");
+        System.exit(0);
+        return dbs;
+      }
+      dbs.add(dbinstances < threadcount ? new SharedDB(db) : db);
+    }
+    return dbs;
+  }
+
+  /**
+   * Create the client threads.
+   *
+   * @param dbs the DB instances shared by all phases, or null to create DB instances that the clients initialize
+   *            and clean up themselves.
+   */
+  private static List<ClientThread> initDb(List<DB> dbs, Properties props, int threadcount,
                                            double targetperthreadperms, Workload workload, Tracer tracer,
                                            CountDownLatch completeLatch) {
-    boolean initFailed = false;
     boolean dotransactions = Boolean.valueOf(props.getProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(true)));
 
     final List<ClientThread> clients = new ArrayList<>(threadcount);
     try (final TraceScope span = tracer.newScope(CLIENT_INIT_SPAN)) {
-      int opcount;
+      long opcount;
       if (dotransactions) {
-        opcount = Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY, "0"));
+        opcount = Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY, "0"));
       } else {
         if (props.containsKey(INSERT_COUNT_PROPERTY)) {
-          opcount = Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY, "0"));
+          opcount = Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY, "0"));
         } else {
-          opcount = Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
+          opcount = Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
         }
       }
       if (threadcount > opcount && opcount > 0){
-        threadcount = opcount;
+        threadcount = (int) opcount;
         System.out.println("Warning: the threadcount is bigger than recordcount, the threadcount will be recordcount!");
       }
+
+      // Client threads share the DB instances round robin when there are fewer instances than threads.
+      final List<DB> clientdbs = dbs != null ? dbs : createDbs(props, threadcount, tracer);
+
       for (int threadid = 0; threadid < threadcount; threadid++) {
-        DB db;
-        try {
-          db = DBFactory.newDB(dbname, props, tracer);
-        } catch (UnknownDBException e) {
-          System.out.println("Unknown DB " + dbname);
-          initFailed = true;
-          break;
-        }
+        DB db = clientdbs.get(threadid % clientdbs.size());
 
-        int threadopcount = opcount / threadcount;
+        long threadopcount = opcount / threadcount;
 
         // ensure correct number of operations, in case opcount is not a multiple of threadcount
         if (threadid < opcount % threadcount) {
@@ -434,15 +807,132 @@ public final class Client {
             completeLatch);
         t.setThreadId(threadid);
         t.setThreadCount(threadcount);
+        t.setManageDb(dbs == null);
         clients.add(t);
       }
+    }
+    return clients;
+  }
 
-      if (initFailed) {
-        System.err.println("Error initializing datastore bindings.");
+  /**
+   * Get the thread running the saturation search in saturate mode, or null.
+   */
+  private static SaturationThread getSaturationThread(Properties props, Workload workload) {
+    String mode = props.getProperty(MODE_PROPERTY, MODE_PROPERTY_DEFAULT);
+    if (mode.equals("run")) {
+      return null;
+    }
+    if (!mode.equals("saturate")) {
+      System.err.println("Unknown " + MODE_PROPERTY + " " + mode);
+      System.exit(0);
+    }
+    if (!Boolean.valueOf(props.getProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(true)))) {
+      System.err.println(MODE_PROPERTY + "=saturate needs the transaction phase (-t)");
+      System.exit(0);
+    }
+
+    // The search decides when the clients stop.
+    props.setProperty(OPERATION_COUNT_PROPERTY, "0");
+    try {
+      return new SaturationThread(props, workload);
+    } catch (IllegalArgumentException e) {
+      System.err.println("Invalid " + MODE_PROPERTY + "=saturate settings: " + e.getMessage());
+      System.exit(0);
+      return null;
+    }
+  }
+
+  /**
+   * Get the thread ending the warm-up, or null if there is no warm-up.
+   */
+  private static WarmupThread getWarmupThread(Properties props, CountDownLatch completeLatch,
+                                              List<ClientThread> clients) {
+    long warmupTime = Long.parseLong(props.getProperty(WarmupThread.WARMUP_TIME_PROPERTY, "0"));
+    long warmupOperations = Long.parseLong(props.getProperty(WarmupThread.WARMUP_OPERATIONS_PROPERTY, "0"));
+    if (warmupTime <= 0 && warmupOperations <= 0) {
+      return null;
+    }
+    return new WarmupThread(completeLatch, clients, warmupTime, warmupOperations);
+  }
+
+  /**
+   * Give the clients the target they follow: the changing target of the saturation search in saturate mode or of
+   * the target profile, and the arrival schedule if any.
+   *
+   * @return the target, or null if there is none.
+   */
+  private static TargetRate initTargets(Properties props, List<ClientThread> clients) {
+    TargetRate targetRate = null;
+    boolean changing = true;
+    String profile = props.getProperty(TARGET_PROFILE_PROPERTY);
+    if (saturationthread != null) {
+      if (profile != null) {
+        System.err.println("Warning: " + TARGET_PROFILE_PROPERTY + " is ignored with " + MODE_PROPERTY + "=saturate");
+      }
+      targetRate = saturationthread.getTargetRate();
+    } else if (profile != null) {
+      try {
+        targetRate = new TargetRate(TargetProfile.parse(profile));
+      } catch (IOException | IllegalArgumentException e) {
+        System.err.println("Could not read " + TARGET_PROFILE_PROPERTY + ": " + e.getMessage());
         System.exit(0);
       }
+    } else {
+      changing = false;
+      int target = Integer.parseInt(props.getProperty(TARGET_PROPERTY, "0"));
+      if (target > 0) {
+        targetRate = new TargetRate(target);
+      }
     }
-    return clients;
+
+    final ArrivalSchedule arrivals = getArrivalSchedule(props, targetRate);
+    for (ClientThread client : clients) {
+      if (changing) {
+        client.setTargetRate(targetRate);
+      }
+      client.setArrivalSchedule(arrivals);
+    }
+    return targetRate;
+  }
+
+  /**
+   * Get the arrival schedule shared by the clients, or null if each client issues its operations at fixed
+   * intervals.
+   */
+  private static ArrivalSchedule getArrivalSchedule(Properties props, TargetRate targetRate) {
+    String distribution = props.getProperty(ARRIVAL_DISTRIBUTION_PROPERTY, ARRIVAL_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (distribution.equals("fixed")) {
+      return null;
+    }
+    if (!distribution.equals("poisson") && !distribution.equals("uniform")) {
+      System.err.println("Unknown " + ARRIVAL_DISTRIBUTION_PROPERTY + " " + distribution);
+      System.exit(0);
+    }
+    if (targetRate == null) {
+      System.err.println("Warning: " + ARRIVAL_DISTRIBUTION_PROPERTY + " needs a target, ignoring it.");
+      return null;
+    }
+    return new ArrivalSchedule(targetRate, distribution.equals("poisson"));
+  }
+
+  /**
+   * Get the factory of the threads running the clients. Virtual threads are created by reflection, so that the
+   * client still runs on JVMs without them.
+   */
+  static ThreadFactory getThreadFactory(Properties props) {
+    String threadmode = props.getProperty(THREAD_MODE_PROPERTY, THREAD_MODE_PROPERTY_DEFAULT);
+    if (threadmode.equals("virtual")) {
+      try {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+      } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+        System.err.println("Warning: virtual threads are not supported by this JVM, using platform threads.");
+      }
+    } else if (!threadmode.equals("platform")) {
+      System.err.println("Unknown " + THREAD_MODE_PROPERTY + " " + threadmode);
+      System.exit(0);
+    }
+    return Thread::new;
   }
 
   private static Tracer getTracer(Properties props, Workload workload) {
@@ -518,7 +1008,7 @@ public final class Client {
   }
 
   private static Properties parseArguments(String[] args) {
-    Properties props = new Properties();
+    Properties props = commandlineprops;
     System.err.print("Command line:");
     for (String arg : args) {
       System.err.print(" " + arg);
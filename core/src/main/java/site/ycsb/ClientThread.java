@@ -27,6 +27,11 @@ import java.util.concurrent.locks.LockSupport;
  * A thread for executing transactions or data inserts to the database.
  */
 public class ClientThread implements Runnable {
+  /**
+   * The measurement of how late, in microseconds, operations are issued with respect to an arrival schedule.
+   */
+  public static final String ARRIVAL_LAG_MEASUREMENT = "ARRIVAL-LAG";
+
   // Counts down each of the clients completing.
   private final CountDownLatch completeLatch;
 
@@ -34,15 +39,21 @@ public class ClientThread implements Runnable {
   private DB db;
   private boolean dotransactions;
   private Workload workload;
-  private int opcount;
+  private long opcount;
   private double targetOpsPerMs;
 
-  private int opsdone;
+  private long opsdone;
   private int threadid;
   private int threadcount;
   private Object workloadstate;
   private Properties props;
   private long targetOpsTickNs;
+  private ArrivalSchedule arrivals;
+  private TargetRate targetRate;
+  private long targetEpoch = -1;
+  private long deadlineNs;
+  private boolean manageDb = true;
+  private CountDownLatch initLatch;
   private final Measurements measurements;
 
   /**
@@ -56,7 +67,7 @@ public class ClientThread implements Runnable {
    * @param targetperthreadperms target number of operations per thread per ms
    * @param completeLatch        The latch tracking the completion of all clients.
    */
-  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, int opcount,
+  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, long opcount,
                       double targetperthreadperms, CountDownLatch completeLatch) {
     this.db = db;
     this.dotransactions = dotransactions;
@@ -81,25 +92,45 @@ public class ClientThread implements Runnable {
     threadcount = threadCount;
   }
 
-  public int getOpsDone() {
+  /**
+   * Take operation arrivals from a schedule shared with the other client threads, instead of issuing operations
+   * at fixed intervals.
+   */
+  public void setArrivalSchedule(final ArrivalSchedule arrivalSchedule) {
+    arrivals = arrivalSchedule;
+  }
+
+  /**
+   * Follow a target throughput that can change while the thread runs, of which this thread takes its share.
+   */
+  public void setTargetRate(final TargetRate rate) {
+    targetRate = rate;
+  }
+
+  /**
+   * Whether the thread initializes and cleans up its DB instance, which it does unless the instance outlives it.
+   */
+  public void setManageDb(final boolean manage) {
+    manageDb = manage;
+  }
+
+  /**
+   * Start issuing operations once all the client threads sharing the latch are initialized. Each thread counts
+   * the latch down once initialized, or once its initialization failed.
+   */
+  public void setInitLatch(final CountDownLatch latch) {
+    initLatch = latch;
+  }
+
+  public long getOpsDone() {
     return opsdone;
   }
 
   @Override
   public void run() {
-    try {
-      db.init();
-    } catch (DBException e) {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    try {
-      workloadstate = workload.initThread(props, threadid, threadcount);
-    } catch (WorkloadException e) {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
+    final boolean initialized = init();
+    awaitStart();
+    if (!initialized) {
       return;
     }
 
@@ -109,7 +140,7 @@ public class ClientThread implements Runnable {
     //spread the thread operations out so they don't all hit the DB at the same time
     // GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
     // and the sleep() doesn't make sense for granularities < 1 ms anyway
-    if ((targetOpsPerMs > 0) && (targetOpsPerMs <= 1.0)) {
+    if ((arrivals == null) && (targetOpsPerMs > 0) && (targetOpsPerMs <= 1.0)) {
       long randomMinorDelay = ThreadLocalRandom.current().nextInt((int) targetOpsTickNs);
       sleepUntil(System.nanoTime() + randomMinorDelay);
     }
@@ -119,6 +150,10 @@ public class ClientThread implements Runnable {
 
         while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
 
+          if (!awaitArrival()) {
+            break;
+          }
+
           if (!workload.doTransaction(db, workloadstate)) {
             break;
           }
@@ -132,6 +167,10 @@ public class ClientThread implements Runnable {
 
         while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
 
+          if (!awaitArrival()) {
+            break;
+          }
+
           if (!workload.doInsert(db, workloadstate)) {
             break;
           }
@@ -149,7 +188,9 @@ public class ClientThread implements Runnable {
 
     try {
       measurements.setIntendedStartTimeNs(0);
-      db.cleanup();
+      if (manageDb) {
+        db.cleanup();
+      }
     } catch (DBException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
@@ -158,6 +199,47 @@ public class ClientThread implements Runnable {
     }
   }
 
+  /**
+   * Initialize the DB instance, unless it outlives the thread, and the workload state of the thread.
+   *
+   * @return false if the initialization failed.
+   */
+  private boolean init() {
+    try {
+      if (manageDb) {
+        db.init();
+      }
+    } catch (DBException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return false;
+    }
+
+    try {
+      workloadstate = workload.initThread(props, threadid, threadcount);
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Wait for the other client threads to be initialized, so that they all start issuing operations together.
+   */
+  private void awaitStart() {
+    if (initLatch == null) {
+      return;
+    }
+    initLatch.countDown();
+    try {
+      initLatch.await();
+    } catch (InterruptedException ignored) {
+      // start at once
+    }
+  }
+
   private static void sleepUntil(long deadline) {
     while (System.nanoTime() < deadline) {
       if (!spinSleep) {
@@ -168,7 +250,9 @@ public class ClientThread implements Runnable {
 
   private void throttleNanos(long startTimeNanos) {
     //throttle the operations
-    if (targetOpsPerMs > 0) {
+    if ((arrivals == null) && (targetRate != null)) {
+      throttleToRate();
+    } else if ((arrivals == null) && (targetOpsPerMs > 0)) {
       // delay until next tick
       long deadline = startTimeNanos + opsdone * targetOpsTickNs;
       sleepUntil(deadline);
@@ -176,11 +260,56 @@ public class ClientThread implements Runnable {
     }
   }
 
+  private void throttleToRate() {
+    // restart the schedule from now when the target is restarted
+    long epoch = targetRate.getEpoch();
+    if (epoch != targetEpoch) {
+      targetEpoch = epoch;
+      deadlineNs = System.nanoTime();
+    }
+
+    double opsPerSec = targetRate.get() / threadcount;
+    if (opsPerSec <= 0) {
+      // pause while the target is 0, resuming the schedule from when it becomes positive
+      measurements.setIntendedStartTimeNs(0);
+      do {
+        if (workload.isStopRequested()) {
+          return;
+        }
+        LockSupport.parkNanos(ArrivalSchedule.PAUSE_POLL_NS);
+        opsPerSec = targetRate.get() / threadcount;
+      } while (opsPerSec <= 0);
+      deadlineNs = Math.max(deadlineNs, System.nanoTime());
+    }
+    deadlineNs += (long) (1000000000 / opsPerSec);
+    sleepUntil(deadlineNs);
+    measurements.setIntendedStartTimeNs(deadlineNs);
+  }
+
+  /**
+   * Wait for the next arrival, if the operations follow an arrival schedule.
+   *
+   * @return false if the workload was stopped while the schedule was paused.
+   */
+  private boolean awaitArrival() {
+    if (arrivals != null) {
+      // wait for the next arrival, and record how far behind the schedule the clients are
+      long arrival = arrivals.next(workload::isStopRequested);
+      if (arrival < 0) {
+        return false;
+      }
+      sleepUntil(arrival);
+      measurements.setIntendedStartTimeNs(arrival);
+      measurements.measure(ARRIVAL_LAG_MEASUREMENT, (System.nanoTime() - arrival) / 1000);
+    }
+    return true;
+  }
+
   /**
    * The total amount of work this thread is still expected to do.
    */
-  int getOpsTodo() {
-    int todo = opcount - opsdone;
+  long getOpsTodo() {
+    long todo = opcount - opsdone;
     return todo < 0 ? 0 : todo;
   }
 }
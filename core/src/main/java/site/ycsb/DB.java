@@ -18,6 +18,7 @@
 package site.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -77,6 +78,16 @@ public abstract class DB {
   public void cleanup() throws DBException {
   }
 
+  /**
+   * End a phase of a run of several phases (see the "phases" property), whose DB instances last from the first
+   * phase to the last. Called once per DB instance after the phase's operations have completed, and before its
+   * measurements are exported.
+   *
+   * @param next the properties of the next phase, or null after the last phase.
+   */
+  public void endPhase(Properties next) throws DBException {
+  }
+
   /**
    * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
    *
@@ -132,4 +143,87 @@ public abstract class DB {
    * @return The result of the operation.
    */
   public abstract Status delete(String table, String key);
+
+  /**
+   * Read several records from the database at once. One HashMap of field/value pairs per key is added to results,
+   * in the order of the keys, empty if the record could not be read. The default reads the records one at a time.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param results A List to which a HashMap of field/value pairs is added for each key
+   * @return The result of the operation: OK if every record was read, else the result for the first record that
+   * was not.
+   */
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          List<Map<String, ByteIterator>> results) {
+    Status status = Status.OK;
+    for (String key : keys) {
+      Map<String, ByteIterator> result = new HashMap<>();
+      status = firstFailure(status, read(table, key, fields, result));
+      results.add(result);
+    }
+    return status;
+  }
+
+  /**
+   * Insert several records in the database at once. The default inserts the records one at a time.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to insert.
+   * @param values A HashMap of field/value pairs to insert for each key, in the order of the keys
+   * @return The result of the operation: OK if every record was inserted, else the result for the first record
+   * that was not.
+   */
+  public Status batchInsert(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    Status status = Status.OK;
+    for (int i = 0; i < keys.size(); i++) {
+      status = firstFailure(status, insert(table, keys.get(i), values.get(i)));
+    }
+    return status;
+  }
+
+  /**
+   * Update several records in the database at once. The default updates the records one at a time.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to write.
+   * @param values A HashMap of field/value pairs to update for each key, in the order of the keys
+   * @return The result of the operation: OK if every record was updated, else the result for the first record
+   * that was not.
+   */
+  public Status batchUpdate(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    Status status = Status.OK;
+    for (int i = 0; i < keys.size(); i++) {
+      status = firstFailure(status, update(table, keys.get(i), values.get(i)));
+    }
+    return status;
+  }
+
+  /**
+   * Combine the result of a batch so far with the result for one more of its records.
+   */
+  protected static Status firstFailure(Status status, Status next) {
+    return status.isOk() && next != null && !next.isOk() ? next : status;
+  }
+
+  /**
+   * Make all writes completed so far durable.
+   *
+   * @return The result of the operation, Status.NOT_IMPLEMENTED if the DB has no explicit sync.
+   */
+  public Status sync() {
+    return Status.NOT_IMPLEMENTED;
+  }
+
+  /**
+   * Delete every record whose key starts with the given prefix.
+   *
+   * @param table The name of the table
+   * @param prefix The key prefix of the records to delete.
+   * @return The result of the operation, Status.NOT_IMPLEMENTED if the DB has no prefix delete.
+   */
+  public Status prefixDelete(String table, String prefix) {
+    return Status.NOT_IMPLEMENTED;
+  }
 }
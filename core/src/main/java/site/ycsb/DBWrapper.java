@@ -19,19 +19,41 @@ package site.ycsb;
 
 import java.util.Map;
 import site.ycsb.measurements.Measurements;
+import site.ycsb.workloads.CoreWorkload;
 import org.apache.htrace.core.TraceScope;
 import org.apache.htrace.core.Tracer;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
  * Also reports latency separately between OK and failed operations.
+ *
+ * With pipeline.depth greater than 1, reads, scans, updates, inserts and
+ * deletes are issued asynchronously (see {@link AsyncDB}) and return
+ * Status.PIPELINED, with up to pipeline.depth of them in flight. Each is
+ * measured from issue to completion, its intended latency from the intended
+ * start time current when it was issued.
+ *
+ * Batch operations are measured twice: once per batch, as BATCH-READ,
+ * BATCH-INSERT and BATCH-UPDATE, and once per record at the amortized
+ * latency, the latency of the batch divided by its size, as READ, INSERT and
+ * UPDATE. Batch operations are not pipelined.
+ *
+ * Operations are measured through handles looked up once per wrapper, and
+ * once per status for failures (see {@link Measurements#getOperation(String)}),
+ * so measuring allocates nothing. Without a sampler, no trace spans would be
+ * sampled, so operations skip tracing altogether.
  */
 public class DBWrapper extends DB {
   private final DB db;
   private final Measurements measurements;
   private final Tracer tracer;
+  private final boolean tracing;
 
   private boolean reportLatencyForEachError = false;
   private Set<String> latencyTrackedErrors = new HashSet<String>();
@@ -41,26 +63,114 @@ public class DBWrapper extends DB {
 
   private static final String LATENCY_TRACKED_ERRORS_PROPERTY = "latencytrackederrors";
 
+  // Pipelining: the asynchronous view of db and the free slots for operations in flight
+  private AsyncDB asyncDb;
+  private Semaphore pipelineSlots;
+  private int pipelineDepth;
+
+  private final String scopeStringBatchInsert;
+  private final String scopeStringBatchRead;
+  private final String scopeStringBatchUpdate;
   private final String scopeStringCleanup;
   private final String scopeStringDelete;
   private final String scopeStringInit;
   private final String scopeStringInsert;
+  private final String scopeStringPrefixDelete;
   private final String scopeStringRead;
   private final String scopeStringScan;
+  private final String scopeStringSync;
   private final String scopeStringUpdate;
 
+  private final OperationHandles batchInsertOp;
+  private final OperationHandles batchReadOp;
+  private final OperationHandles batchUpdateOp;
+  private final OperationHandles cleanupOp;
+  private final OperationHandles deleteOp;
+  private final OperationHandles insertOp;
+  private final OperationHandles prefixDeleteOp;
+  private final OperationHandles readOp;
+  private final OperationHandles scanOp;
+  private final OperationHandles syncOp;
+  private final OperationHandles updateOp;
+
   public DBWrapper(final DB db, final Tracer tracer) {
     this.db = db;
     measurements = Measurements.getMeasurements();
     this.tracer = tracer;
+    tracing = tracer.getSamplers().length > 0;
     final String simple = db.getClass().getSimpleName();
+    scopeStringBatchInsert = simple + "#batchInsert";
+    scopeStringBatchRead = simple + "#batchRead";
+    scopeStringBatchUpdate = simple + "#batchUpdate";
     scopeStringCleanup = simple + "#cleanup";
     scopeStringDelete = simple + "#delete";
     scopeStringInit = simple + "#init";
     scopeStringInsert = simple + "#insert";
+    scopeStringPrefixDelete = simple + "#prefixDelete";
     scopeStringRead = simple + "#read";
     scopeStringScan = simple + "#scan";
+    scopeStringSync = simple + "#sync";
     scopeStringUpdate = simple + "#update";
+    batchInsertOp = new OperationHandles("BATCH-INSERT");
+    batchReadOp = new OperationHandles("BATCH-READ");
+    batchUpdateOp = new OperationHandles("BATCH-UPDATE");
+    cleanupOp = new OperationHandles("CLEANUP");
+    deleteOp = new OperationHandles("DELETE");
+    insertOp = new OperationHandles("INSERT");
+    prefixDeleteOp = new OperationHandles("PREFIXDELETE");
+    readOp = new OperationHandles("READ");
+    scanOp = new OperationHandles("SCAN");
+    syncOp = new OperationHandles("SYNC");
+    updateOp = new OperationHandles("UPDATE");
+  }
+
+  /**
+   * The measurement handles of an operation: one for the operation, which
+   * also counts its statuses, and one per failure status, looked up on the
+   * first failure with that status.
+   */
+  private final class OperationHandles {
+    private final Measurements.Operation op;
+    private final ConcurrentHashMap<Status, Measurements.Operation> failures = new ConcurrentHashMap<>();
+
+    OperationHandles(String name) {
+      op = measurements.getOperation(name);
+    }
+
+    Measurements.Operation forStatus(Status status) {
+      if (status.isOk()) {
+        return op;
+      }
+      Measurements.Operation failure = failures.get(status);
+      if (failure == null) {
+        failure = measurements.getOperation(failureName(status));
+        Measurements.Operation other = failures.putIfAbsent(status, failure);
+        if (other != null) {
+          failure = other;
+        }
+      }
+      return failure;
+    }
+
+    private String failureName(Status status) {
+      if (reportLatencyForEachError || latencyTrackedErrors.contains(status.getName())) {
+        return op.getName() + "-" + status.getName();
+      }
+      return op.getName() + "-FAILED";
+    }
+
+    void reportStatus(Status status) {
+      op.reportStatus(status);
+    }
+  }
+
+  /**
+   * Open a trace scope, unless no spans are sampled.
+   *
+   * @return the scope, or null when not tracing.
+   */
+  private TraceScope newScope(String description) {
+    return tracing ? tracer.newScope(description) : null;
   }
 
   /**
@@ -82,7 +192,7 @@ public class DBWrapper extends DB {
    * Called once per DB instance; there is one DB instance per client thread.
    */
   public void init() throws DBException {
-    try (final TraceScope span = tracer.newScope(scopeStringInit)) {
+    try (final TraceScope span = newScope(scopeStringInit)) {
       db.init();
 
       this.reportLatencyForEachError = Boolean.parseBoolean(getProperties().
@@ -100,6 +210,84 @@ public class DBWrapper extends DB {
       System.err.println("DBWrapper: report latency for each error is " +
           this.reportLatencyForEachError + " and specific error codes to track" +
           " for latency are: " + this.latencyTrackedErrors.toString());
+
+      pipelineDepth = Integer.parseInt(getProperties().getProperty(Client.PIPELINE_DEPTH_PROPERTY,
+          Client.PIPELINE_DEPTH_PROPERTY_DEFAULT));
+      if (pipelineDepth > 1) {
+        // The workload would check results before they arrive.
+        if (Boolean.parseBoolean(getProperties().getProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY,
+            CoreWorkload.DATA_INTEGRITY_PROPERTY_DEFAULT))) {
+          throw new DBException(Client.PIPELINE_DEPTH_PROPERTY + " > 1 cannot be combined with " +
+              CoreWorkload.DATA_INTEGRITY_PROPERTY);
+        }
+        // Inserts are acknowledged once issued, so reads of the latest keys
+        // would pick records not written yet.
+        if ("latest".equals(getProperties().getProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY))
+            && Double.parseDouble(getProperties().getProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY,
+            CoreWorkload.INSERT_PROPORTION_PROPERTY_DEFAULT)) > 0) {
+          throw new DBException(Client.PIPELINE_DEPTH_PROPERTY + " > 1 cannot be combined with " +
+              CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY + "=latest and inserts");
+        }
+
+        asyncDb = AsyncDB.adapt(db);
+        pipelineSlots = new Semaphore(pipelineDepth);
+      }
+    }
+  }
+
+  /**
+   * Pipelining: wait for a free slot, then issue an operation. An operation
+   * that throws or returns no future when issued fails with Status.ERROR, and
+   * frees its slot like any other.
+   */
+  private Status issue(final OperationHandles op, final long ist, final Supplier<CompletableFuture<Status>> call) {
+    pipelineSlots.acquireUninterruptibly();
+    final long st = System.nanoTime();
+    CompletableFuture<Status> future;
+    try {
+      future = call.get();
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+      future = null;
+    }
+    if (future == null) {
+      future = CompletableFuture.completedFuture(Status.ERROR);
+    }
+    return complete(op, ist, st, future);
+  }
+
+  /**
+   * Pipelining: measure an issued operation once it completes, freeing its
+   * slot.
+   */
+  private Status complete(final OperationHandles op, final long ist, final long st,
+                          final CompletableFuture<Status> future) {
+    future.whenComplete((res, e) -> {
+        long en = System.nanoTime();
+        Status status = e == null && res != null ? res : Status.ERROR;
+        measure(op, status, ist, st, en);
+        op.reportStatus(status);
+        pipelineSlots.release();
+      });
+    return Status.PIPELINED;
+  }
+
+  /**
+   * Pipelining: wait for every operation in flight to complete.
+   */
+  private void drain() {
+    pipelineSlots.acquireUninterruptibly(pipelineDepth);
+    pipelineSlots.release(pipelineDepth);
+  }
+
+  /**
+   * Pipelining: wait for every operation in flight on a DB instance, possibly
+   * shared, to complete.
+   */
+  static void drain(DB db) {
+    DB wrapped = db instanceof SharedDB ? ((SharedDB) db).getDb() : db;
+    if (wrapped instanceof DBWrapper && ((DBWrapper) wrapped).asyncDb != null) {
+      ((DBWrapper) wrapped).drain();
     }
   }
 
@@ -108,15 +296,27 @@ public class DBWrapper extends DB {
    * Called once per DB instance; there is one DB instance per client thread.
    */
   public void cleanup() throws DBException {
-    try (final TraceScope span = tracer.newScope(scopeStringCleanup)) {
+    if (asyncDb != null) {
+      drain();
+    }
+
+    try (final TraceScope span = newScope(scopeStringCleanup)) {
       long ist = measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
       db.cleanup();
       long en = System.nanoTime();
-      measure("CLEANUP", Status.OK, ist, st, en);
+      measure(cleanupOp, Status.OK, ist, st, en);
     }
   }
 
+  /**
+   * End a phase of a run of several phases.
+   */
+  @Override
+  public void endPhase(Properties next) throws DBException {
+    db.endPhase(next);
+  }
+
   /**
    * Read a record from the database. Each field/value pair from the result
    * will be stored in a HashMap.
@@ -129,13 +329,16 @@ public class DBWrapper extends DB {
    */
   public Status read(String table, String key, Set<String> fields,
                      Map<String, ByteIterator> result) {
-    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+    try (final TraceScope span = newScope(scopeStringRead)) {
       long ist = measurements.getIntendedtartTimeNs();
+      if (asyncDb != null) {
+        return issue(readOp, ist, () -> asyncDb.readAsync(table, key, fields, result));
+      }
       long st = System.nanoTime();
       Status res = db.read(table, key, fields, result);
       long en = System.nanoTime();
-      measure("READ", res, ist, st, en);
-      measurements.reportStatus("READ", res);
+      measure(readOp, res, ist, st, en);
+      readOp.reportStatus(res);
       return res;
     }
   }
@@ -153,32 +356,105 @@ public class DBWrapper extends DB {
    */
   public Status scan(String table, String startkey, int recordcount,
                      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
-    try (final TraceScope span = tracer.newScope(scopeStringScan)) {
+    try (final TraceScope span = newScope(scopeStringScan)) {
       long ist = measurements.getIntendedtartTimeNs();
+      if (asyncDb != null) {
+        return issue(scanOp, ist, () -> asyncDb.scanAsync(table, startkey, recordcount, fields, result));
+      }
       long st = System.nanoTime();
       Status res = db.scan(table, startkey, recordcount, fields, result);
       long en = System.nanoTime();
-      measure("SCAN", res, ist, st, en);
-      measurements.reportStatus("SCAN", res);
+      measure(scanOp, res, ist, st, en);
+      scanOp.reportStatus(res);
       return res;
     }
   }
 
-  private void measure(String op, Status result, long intendedStartTimeNanos,
+  private void measure(OperationHandles op, Status result, long intendedStartTimeNanos,
                        long startTimeNanos, long endTimeNanos) {
-    String measurementName = op;
-    if (result == null || !result.isOk()) {
-      if (this.reportLatencyForEachError ||
-          this.latencyTrackedErrors.contains(result.getName())) {
-        measurementName = op + "-" + result.getName();
-      } else {
-        measurementName = op + "-FAILED";
-      }
+    long latency = (endTimeNanos - startTimeNanos) / 1000;
+    long intendedLatency = (endTimeNanos - intendedStartTimeNanos) / 1000;
+    op.forStatus(result).measure(latency, intendedLatency);
+    measurements.measureWindow(latency, intendedLatency);
+  }
+
+  /**
+   * Measure a batch of records, then each of its records at the amortized
+   * latency. The intended latency of a record runs until the batch completes.
+   */
+  private void measureBatch(OperationHandles batchOp, OperationHandles op, Status result, int records,
+                            long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
+    batchOp.forStatus(result).measure((endTimeNanos - startTimeNanos) / 1000,
+        (endTimeNanos - intendedStartTimeNanos) / 1000);
+    batchOp.reportStatus(result);
+
+    if (records == 0) {
+      return;
+    }
+    long recordNanos = (endTimeNanos - startTimeNanos) / records;
+    for (int i = 0; i < records; i++) {
+      measure(op, result, intendedStartTimeNanos, endTimeNanos - recordNanos, endTimeNanos);
+      op.reportStatus(result);
+    }
+  }
+
+  /**
+   * Read several records from the database at once.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param results A List to which a HashMap of field/value pairs is added for each key
+   * @return The result of the operation.
+   */
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          List<Map<String, ByteIterator>> results) {
+    try (final TraceScope span = newScope(scopeStringBatchRead)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.batchRead(table, keys, fields, results);
+      long en = System.nanoTime();
+      measureBatch(batchReadOp, readOp, res, keys.size(), ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * Insert several records in the database at once.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to insert.
+   * @param values A HashMap of field/value pairs to insert for each key, in the order of the keys
+   * @return The result of the operation.
+   */
+  public Status batchInsert(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    try (final TraceScope span = newScope(scopeStringBatchInsert)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.batchInsert(table, keys, values);
+      long en = System.nanoTime();
+      measureBatch(batchInsertOp, insertOp, res, keys.size(), ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * Update several records in the database at once.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to write.
+   * @param values A HashMap of field/value pairs to update for each key, in the order of the keys
+   * @return The result of the operation.
+   */
+  public Status batchUpdate(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    try (final TraceScope span = newScope(scopeStringBatchUpdate)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.batchUpdate(table, keys, values);
+      long en = System.nanoTime();
+      measureBatch(batchUpdateOp, updateOp, res, keys.size(), ist, st, en);
+      return res;
     }
-    measurements.measure(measurementName,
-        (int) ((endTimeNanos - startTimeNanos) / 1000));
-    measurements.measureIntended(measurementName,
-        (int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
   }
 
   /**
@@ -192,13 +468,16 @@ public class DBWrapper extends DB {
    */
   public Status update(String table, String key,
                        Map<String, ByteIterator> values) {
-    try (final TraceScope span = tracer.newScope(scopeStringUpdate)) {
+    try (final TraceScope span = newScope(scopeStringUpdate)) {
       long ist = measurements.getIntendedtartTimeNs();
+      if (asyncDb != null) {
+        return issue(updateOp, ist, () -> asyncDb.updateAsync(table, key, values));
+      }
       long st = System.nanoTime();
       Status res = db.update(table, key, values);
       long en = System.nanoTime();
-      measure("UPDATE", res, ist, st, en);
-      measurements.reportStatus("UPDATE", res);
+      measure(updateOp, res, ist, st, en);
+      updateOp.reportStatus(res);
       return res;
     }
   }
@@ -215,13 +494,16 @@ public class DBWrapper extends DB {
    */
   public Status insert(String table, String key,
                        Map<String, ByteIterator> values) {
-    try (final TraceScope span = tracer.newScope(scopeStringInsert)) {
+    try (final TraceScope span = newScope(scopeStringInsert)) {
       long ist = measurements.getIntendedtartTimeNs();
+      if (asyncDb != null) {
+        return issue(insertOp, ist, () -> asyncDb.insertAsync(table, key, values));
+      }
       long st = System.nanoTime();
       Status res = db.insert(table, key, values);
       long en = System.nanoTime();
-      measure("INSERT", res, ist, st, en);
-      measurements.reportStatus("INSERT", res);
+      measure(insertOp, res, ist, st, en);
+      insertOp.reportStatus(res);
       return res;
     }
   }
@@ -234,13 +516,52 @@ public class DBWrapper extends DB {
    * @return The result of the operation.
    */
   public Status delete(String table, String key) {
-    try (final TraceScope span = tracer.newScope(scopeStringDelete)) {
+    try (final TraceScope span = newScope(scopeStringDelete)) {
       long ist = measurements.getIntendedtartTimeNs();
+      if (asyncDb != null) {
+        return issue(deleteOp, ist, () -> asyncDb.deleteAsync(table, key));
+      }
       long st = System.nanoTime();
       Status res = db.delete(table, key);
       long en = System.nanoTime();
-      measure("DELETE", res, ist, st, en);
-      measurements.reportStatus("DELETE", res);
+      measure(deleteOp, res, ist, st, en);
+      deleteOp.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Make all writes completed so far durable.
+   *
+   * @return The result of the operation.
+   */
+  public Status sync() {
+    try (final TraceScope span = newScope(scopeStringSync)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.sync();
+      long en = System.nanoTime();
+      measure(syncOp, res, ist, st, en);
+      syncOp.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Delete every record whose key starts with the given prefix.
+   *
+   * @param table The name of the table
+   * @param prefix The key prefix of the records to delete.
+   * @return The result of the operation.
+   */
+  public Status prefixDelete(String table, String prefix) {
+    try (final TraceScope span = newScope(scopeStringPrefixDelete)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.prefixDelete(table, prefix);
+      long en = System.nanoTime();
+      measure(prefixDeleteOp, res, ist, st, en);
+      prefixDeleteOp.reportStatus(res);
       return res;
     }
   }
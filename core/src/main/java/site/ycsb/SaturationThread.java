@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.HdrHistogram.Histogram;
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.OneMeasurementHdrHistogram;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A thread searching for the highest target throughput at which the workload
+ * meets a latency SLO ("mode=saturate").
+ *
+ * The transaction phase runs as a series of steps of saturate.step.time
+ * seconds, each at its own target. The target grows by a factor of
+ * saturate.growth from saturate.start.target until a step violates the SLO,
+ * and then a binary search of saturate.search.steps steps narrows it down
+ * between the highest target that met the SLO and the lowest that did not.
+ *
+ * A step meets the SLO if the saturate.slo.percentile percentile of the
+ * latencies of its operations is at most saturate.slo.latency microseconds,
+ * and its throughput is within saturate.tolerance of its target. The
+ * latencies are the intended ones unless measurement.interval is op.
+ *
+ * Each step restarts the target schedule, so an overloaded step does not
+ * leave a backlog to the next one. Once the search is done, the workload is
+ * asked to stop.
+ */
+public class SaturationThread extends Thread {
+  public static final String STEP_TIME_PROPERTY = "saturate.step.time";
+  public static final String STEP_TIME_PROPERTY_DEFAULT = "30";
+  public static final String START_TARGET_PROPERTY = "saturate.start.target";
+  public static final String START_TARGET_PROPERTY_DEFAULT = "1000";
+  public static final String GROWTH_PROPERTY = "saturate.growth";
+  public static final String GROWTH_PROPERTY_DEFAULT = "2";
+  public static final String SEARCH_STEPS_PROPERTY = "saturate.search.steps";
+  public static final String SEARCH_STEPS_PROPERTY_DEFAULT = "5";
+  public static final String SLO_PERCENTILE_PROPERTY = "saturate.slo.percentile";
+  public static final String SLO_PERCENTILE_PROPERTY_DEFAULT = "99";
+  public static final String SLO_LATENCY_PROPERTY = "saturate.slo.latency";
+  public static final String SLO_LATENCY_PROPERTY_DEFAULT = "2000";
+  public static final String TOLERANCE_PROPERTY = "saturate.tolerance";
+  public static final String TOLERANCE_PROPERTY_DEFAULT = "0.1";
+
+  /**
+   * The outcome of a step.
+   */
+  private static final class Step {
+    private final double target;
+    private final double throughput;
+    private final long latency;
+    private final boolean meetsSlo;
+
+    Step(double target, double throughput, long latency, boolean meetsSlo) {
+      this.target = target;
+      this.throughput = throughput;
+      this.latency = latency;
+      this.meetsSlo = meetsSlo;
+    }
+  }
+
+  private final Workload workload;
+  private final Measurements measurements;
+  private final TargetRate targetRate;
+  private final long stepTimeMs;
+  private final double startTarget;
+  private final double growth;
+  private final int searchSteps;
+  private final double sloPercentile;
+  private final long sloLatency;
+  private final double tolerance;
+  private final List<Step> steps = new ArrayList<>();
+  private Step knee;
+
+  public SaturationThread(Properties props, Workload workload) {
+    this.workload = workload;
+    measurements = Measurements.getMeasurements();
+    stepTimeMs = Long.parseLong(props.getProperty(STEP_TIME_PROPERTY, STEP_TIME_PROPERTY_DEFAULT)) * 1000;
+    startTarget = Double.parseDouble(props.getProperty(START_TARGET_PROPERTY, START_TARGET_PROPERTY_DEFAULT));
+    growth = Double.parseDouble(props.getProperty(GROWTH_PROPERTY, GROWTH_PROPERTY_DEFAULT));
+    searchSteps = Integer.parseInt(props.getProperty(SEARCH_STEPS_PROPERTY, SEARCH_STEPS_PROPERTY_DEFAULT));
+    sloPercentile = Double.parseDouble(props.getProperty(SLO_PERCENTILE_PROPERTY, SLO_PERCENTILE_PROPERTY_DEFAULT));
+    sloLatency = Long.parseLong(props.getProperty(SLO_LATENCY_PROPERTY, SLO_LATENCY_PROPERTY_DEFAULT));
+    tolerance = Double.parseDouble(props.getProperty(TOLERANCE_PROPERTY, TOLERANCE_PROPERTY_DEFAULT));
+    if (stepTimeMs <= 0 || startTarget <= 0 || growth <= 1) {
+      throw new IllegalArgumentException(STEP_TIME_PROPERTY + " and " + START_TARGET_PROPERTY +
+          " must be positive, and " + GROWTH_PROPERTY + " greater than 1");
+    }
+    targetRate = new TargetRate(startTarget);
+  }
+
+  /**
+   * The target throughput the client threads follow.
+   */
+  public TargetRate getTargetRate() {
+    return targetRate;
+  }
+
+  @Override
+  public void run() {
+    double target = startTarget;
+    double highestMet = 0;
+    double lowestViolated = 0;
+    int searched = 0;
+
+    while (!workload.isStopRequested()) {
+      final Step step;
+      try {
+        step = runStep(target);
+      } catch (InterruptedException e) {
+        System.err.println("Saturation search interrupted.");
+        break;
+      }
+      steps.add(step);
+
+      if (step.meetsSlo) {
+        highestMet = target;
+        knee = step;
+      } else if (lowestViolated == 0 || target < lowestViolated) {
+        lowestViolated = target;
+      }
+
+      if (lowestViolated == 0) {
+        target *= growth;
+      } else if (searched++ < searchSteps) {
+        target = (highestMet + lowestViolated) / 2;
+      } else {
+        break;
+      }
+    }
+
+    System.err.println("Saturation search done. Requesting stop for the workload.");
+    workload.requestStop();
+  }
+
+  private Step runStep(double target) throws InterruptedException {
+    targetRate.restart(target);
+    measurements.takeWindow();
+    final long start = System.nanoTime();
+    Thread.sleep(stepTimeMs);
+    final Histogram window = measurements.takeWindow();
+    final double seconds = (System.nanoTime() - start) / 1e9;
+
+    final double throughput = window.getTotalCount() / seconds;
+    final long latency = window.getValueAtPercentile(sloPercentile);
+    final boolean meetsSlo = latency <= sloLatency && throughput >= target * (1 - tolerance);
+    System.err.printf("Saturation step %d: target %.0f ops/sec, throughput %.0f ops/sec, %s percentile %d us, %s%n",
+        steps.size() + 1, target, throughput, OneMeasurementHdrHistogram.ordinal(sloPercentile), latency,
+        meetsSlo ? "meets the SLO" : "violates the SLO");
+    return new Step(target, throughput, latency, meetsSlo);
+  }
+
+  /**
+   * Export the throughput/latency curve of the steps, and the knee: the step with the highest target that met
+   * the SLO.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    final String latencyName = OneMeasurementHdrHistogram.ordinal(sloPercentile) + "PercentileLatency(us)";
+    for (int i = 0; i < steps.size(); i++) {
+      final Step step = steps.get(i);
+      final String metric = "SATURATE-STEP-" + (i + 1);
+      exporter.write(metric, "Target(ops/sec)", step.target);
+      exporter.write(metric, "Throughput(ops/sec)", step.throughput);
+      exporter.write(metric, latencyName, step.latency);
+      exporter.write(metric, "MeetsSLO", step.meetsSlo ? 1 : 0);
+    }
+    if (knee != null) {
+      exporter.write("SATURATE-KNEE", "Target(ops/sec)", knee.target);
+      exporter.write("SATURATE-KNEE", "Throughput(ops/sec)", knee.throughput);
+      exporter.write("SATURATE-KNEE", latencyName, knee.latency);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A DB instance shared by several client threads (see the "db.instances"
+ * property), much as connections from a pool are shared.
+ *
+ * The first init initializes the DB and the last cleanup cleans it up.
+ * Operations are serialized, since bindings expect a DB instance to be used
+ * by a single thread, and waiting clients get the DB in arrival order. A
+ * client's wait counts towards its intended latency but not its actual
+ * latency.
+ *
+ * The lock is a ReentrantLock rather than a monitor so that a virtual thread
+ * waiting for the DB does not pin its carrier thread.
+ */
+final class SharedDB extends DB {
+  private final DB db;
+  private final ReentrantLock lock = new ReentrantLock(true);
+  private int users;
+
+  SharedDB(DB db) {
+    this.db = db;
+  }
+
+  DB getDb() {
+    return db;
+  }
+
+  @Override
+  public void setProperties(Properties p) {
+    db.setProperties(p);
+  }
+
+  @Override
+  public Properties getProperties() {
+    return db.getProperties();
+  }
+
+  @Override
+  public void init() throws DBException {
+    lock.lock();
+    try {
+      if (users == 0) {
+        db.init();
+      }
+      users++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void cleanup() throws DBException {
+    lock.lock();
+    try {
+      users--;
+      if (users == 0) {
+        db.cleanup();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void endPhase(Properties next) throws DBException {
+    lock.lock();
+    try {
+      db.endPhase(next);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    lock.lock();
+    try {
+      return db.read(table, key, fields, result);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                     Vector<HashMap<String, ByteIterator>> result) {
+    lock.lock();
+    try {
+      return db.scan(table, startkey, recordcount, fields, result);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Status update(String table, String key, Map<String, ByteIterator> values) {
+    lock.lock();
+    try {
+      return db.update(table, key, values);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Status insert(String table, String key, Map<String, ByteIterator> values) {
+    lock.lock();
+    try {
+      return db.insert(table, key, values);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    lock.lock();
+    try {
+      return db.delete(table, key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          List<Map<String, ByteIterator>> results) {
+    lock.lock();
+    try {
+      return db.batchRead(table, keys, fields, results);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Status batchInsert(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    lock.lock();
+    try {
+      return db.batchInsert(table, keys, values);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Status batchUpdate(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    lock.lock();
+    try {
+      return db.batchUpdate(table, keys, values);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Status sync() {
+    lock.lock();
+    try {
+      return db.sync();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Status prefixDelete(String table, String prefix) {
+    lock.lock();
+    try {
+      return db.prefixDelete(table, prefix);
+    } finally {
+      lock.unlock();
+    }
+  }
+}
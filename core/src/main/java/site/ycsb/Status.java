@@ -86,11 +86,12 @@ public class Status {
   }
 
   /**
-   * Is {@code this} a passing state for the operation: {@link Status#OK} or {@link Status#BATCHED_OK}.
+   * Is {@code this} a passing state for the operation: {@link Status#OK}, {@link Status#BATCHED_OK} or
+   * {@link Status#PIPELINED}.
    * @return true if the operation is successful, false otherwise
    */
   public boolean isOk() {
-    return this == OK || this == BATCHED_OK;
+    return this == OK || this == BATCHED_OK || this == PIPELINED;
   }
 
   public static final Status OK = new Status("OK", "The operation completed successfully.");
@@ -106,5 +107,7 @@ public class Status {
       "service for the current binding is not available.");
   public static final Status BATCHED_OK = new Status("BATCHED_OK", "The operation has been batched by " +
       "the binding to be executed later.");
+  public static final Status PIPELINED = new Status("PIPELINED", "The operation has been issued and " +
+      "its result will be measured when it completes.");
 }
 
@@ -44,6 +44,9 @@ public class StatusThread extends Thread {
   private final String label;
   private final boolean standardstatus;
 
+  // The target throughput, if any.
+  private TargetRate targetRate;
+
   // The interval for reporting status.
   private long sleeptimeNs;
 
@@ -95,6 +98,16 @@ public class StatusThread extends Thread {
     this.trackJVMStats = trackJVMStats;
   }
 
+  /**
+   * Report the target throughput next to the current throughput, and record both as measurements so that they
+   * line up with the latencies of each interval.
+   *
+   * @param rate The target, or null if there is none.
+   */
+  public void setTargetRate(TargetRate rate) {
+    targetRate = rate;
+  }
+
   /**
    * Run and periodically report status.
    */
@@ -170,6 +183,14 @@ public class StatusThread extends Thread {
     if (totalops != 0) {
       msg.append(d.format(curthroughput)).append(" current ops/sec; ");
     }
+    if (targetRate != null) {
+      double target = targetRate.get();
+      msg.append(d.format(target)).append(" target ops/sec; ");
+      if (endIntervalMs > startIntervalMs) {
+        measurements.measure("TARGET_OPS_PER_SEC", (long) target);
+        measurements.measure("CURRENT_OPS_PER_SEC", (long) curthroughput);
+      }
+    }
     if (todoops != 0) {
       msg.append("est completion in ").append(RemainingFormatter.format(estremaining));
     }
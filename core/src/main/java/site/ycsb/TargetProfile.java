@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A target throughput that follows a schedule over the run (see the
+ * "target.profile" property).
+ *
+ * A profile is either a CSV file of per-second rates, replayed one line per
+ * second (the last field of each line is the rate; blank lines and lines
+ * starting with # are skipped), or a comma separated list of points:
+ * <ul>
+ * <li>TIME:RATE steps to RATE at TIME.</li>
+ * <li>TIME:ramp:RATE ramps linearly from the previous point's rate to RATE
+ * at TIME.</li>
+ * <li>TIME:sine:AMPLITUDE:PERIOD oscillates around the previous point's rate
+ * from TIME on, by AMPLITUDE with a period of PERIOD.</li>
+ * </ul>
+ * Times and periods are in seconds, or take a suffix of s, m or h. Rates are
+ * in operations per second; the first point's rate applies before it, and
+ * the last point's after it. For example 0s:10000,60s:50000,120s:ramp:200000
+ * runs at 10000 ops/sec for a minute, then at 50000 ops/sec, ramping up to
+ * 200000 ops/sec over the second minute and staying there.
+ *
+ * A rate of 0, or below it as a sine dipping under 0, pauses the clients
+ * until the rate is positive again.
+ */
+public final class TargetProfile {
+  /**
+   * A point of a piecewise profile.
+   */
+  private static final class Point {
+    private final double time;
+    private final double rate;
+    private final boolean ramp;
+    private final double amplitude;
+    private final double period;
+
+    Point(double time, double rate, boolean ramp, double amplitude, double period) {
+      this.time = time;
+      this.rate = rate;
+      this.ramp = ramp;
+      this.amplitude = amplitude;
+      this.period = period;
+    }
+  }
+
+  private final List<Point> points;
+  private final double[] perSecond;
+
+  private TargetProfile(List<Point> points, double[] perSecond) {
+    this.points = points;
+    this.perSecond = perSecond;
+  }
+
+  /**
+   * Parse a profile: the path of a CSV file of per-second rates, or a list of points.
+   *
+   * @throws IOException if the CSV file cannot be read.
+   * @throws IllegalArgumentException if the profile is malformed.
+   */
+  public static TargetProfile parse(String profile) throws IOException {
+    final File file = new File(profile);
+    if (file.isFile()) {
+      return new TargetProfile(null, readRates(file));
+    }
+
+    final List<Point> points = new ArrayList<>();
+    double rate = 0;
+    for (String spec : profile.split(",")) {
+      final String[] fields = spec.trim().split(":");
+      try {
+        final double time = parseSeconds(fields[0]);
+        if (!points.isEmpty() && time < points.get(points.size() - 1).time) {
+          throw new IllegalArgumentException("Points of target profile out of order: " + spec);
+        }
+        if (fields.length == 2) {
+          rate = Double.parseDouble(fields[1]);
+          points.add(new Point(time, rate, false, 0, 0));
+        } else if (fields.length == 3 && fields[1].equals("ramp")) {
+          rate = Double.parseDouble(fields[2]);
+          points.add(new Point(time, rate, true, 0, 0));
+        } else if (fields.length == 4 && fields[1].equals("sine")) {
+          points.add(new Point(time, rate, false, Double.parseDouble(fields[2]), parseSeconds(fields[3])));
+        } else {
+          throw new IllegalArgumentException("Malformed point of target profile: " + spec);
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Malformed point of target profile: " + spec, e);
+      }
+    }
+    return new TargetProfile(points, null);
+  }
+
+  private static double parseSeconds(String time) {
+    final char unit = time.charAt(time.length() - 1);
+    switch (unit) {
+    case 's':
+      return Double.parseDouble(time.substring(0, time.length() - 1));
+    case 'm':
+      return 60 * Double.parseDouble(time.substring(0, time.length() - 1));
+    case 'h':
+      return 3600 * Double.parseDouble(time.substring(0, time.length() - 1));
+    default:
+      return Double.parseDouble(time);
+    }
+  }
+
+  private static double[] readRates(File file) throws IOException {
+    final List<Double> rates = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        final String rate = line.substring(line.lastIndexOf(',') + 1).trim();
+        try {
+          rates.add(Double.parseDouble(rate));
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Malformed rate in target profile " + file + ": " + line, e);
+        }
+      }
+    }
+    if (rates.isEmpty()) {
+      throw new IllegalArgumentException("Target profile " + file + " has no rates");
+    }
+
+    final double[] perSecond = new double[rates.size()];
+    for (int i = 0; i < perSecond.length; i++) {
+      perSecond[i] = rates.get(i);
+    }
+    return perSecond;
+  }
+
+  /**
+   * @param seconds the time since the start of the run, in seconds.
+   * @return the target at that time, in operations per second, which is never negative.
+   */
+  public double rateAt(double seconds) {
+    return Math.max(0, profileRateAt(seconds));
+  }
+
+  private double profileRateAt(double seconds) {
+    if (perSecond != null) {
+      return perSecond[(int) Math.min(Math.max(seconds, 0), perSecond.length - 1)];
+    }
+
+    // the last point at or before the time, if any
+    int i = points.size() - 1;
+    while (i > 0 && points.get(i).time > seconds) {
+      i--;
+    }
+    final Point point = points.get(i);
+    if (seconds < point.time) {
+      return point.rate;
+    }
+
+    if (i + 1 < points.size() && points.get(i + 1).ramp) {
+      final Point next = points.get(i + 1);
+      return point.rate + (next.rate - point.rate) * (seconds - point.time) / (next.time - point.time);
+    }
+    if (point.period > 0) {
+      return point.rate + point.amplitude * Math.sin(2 * Math.PI * (seconds - point.time) / point.period);
+    }
+    return point.rate;
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+/**
+ * A target throughput that can change while the client threads run, as in
+ * the steps of "mode=saturate", or follow a {@link TargetProfile}.
+ *
+ * Changing the rate with {@link #set(double)} keeps the client threads'
+ * schedules, so operations that are behind schedule stay behind it.
+ * Restarting with {@link #restart(double)} drops any backlog: the schedules
+ * start again from the time each thread notices the restart.
+ *
+ * A profile's clock starts with {@link #start()}, when the client threads
+ * are released to run, so time spent initializing does not count.
+ */
+public final class TargetRate {
+  private volatile double opsPerSec;
+  private volatile long epoch;
+  private final TargetProfile profile;
+  private volatile long startNs;
+
+  /**
+   * @param opsPerSec the initial target, in operations per second.
+   */
+  public TargetRate(double opsPerSec) {
+    this.opsPerSec = opsPerSec;
+    this.profile = null;
+    this.startNs = 0;
+  }
+
+  /**
+   * @param profile the schedule of the target, from {@link #start()} on.
+   */
+  public TargetRate(TargetProfile profile) {
+    this.profile = profile;
+    this.startNs = System.nanoTime();
+  }
+
+  /**
+   * Start the profile's clock, and restart the schedules, which may have
+   * been following the profile from before it started.
+   */
+  public synchronized void start() {
+    startNs = System.nanoTime();
+    epoch++;
+  }
+
+  /**
+   * @return the target, in operations per second.
+   */
+  public double get() {
+    if (profile != null) {
+      return profile.rateAt((System.nanoTime() - startNs) / 1e9);
+    }
+    return opsPerSec;
+  }
+
+  /**
+   * Change the target, keeping the schedules.
+   */
+  public void set(double newOpsPerSec) {
+    opsPerSec = newOpsPerSec;
+  }
+
+  /**
+   * Change the target and restart the schedules.
+   */
+  public synchronized void restart(double newOpsPerSec) {
+    opsPerSec = newOpsPerSec;
+    epoch++;
+  }
+
+  /**
+   * @return the number of restarts so far.
+   */
+  public long getEpoch() {
+    return epoch;
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import site.ycsb.measurements.Measurements;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread ending the warm-up window at the start of a run (see the
+ * "warmup.time" and "warmup.operations" properties).
+ *
+ * Operations during the warm-up run as usual, but their measurements are
+ * recorded as WARMUP-* and left out of the others. The warm-up lasts at
+ * least warmup.time seconds and until the client threads have done
+ * warmup.operations operations in all, checked every few milliseconds.
+ */
+public class WarmupThread extends Thread {
+  public static final String WARMUP_TIME_PROPERTY = "warmup.time";
+  public static final String WARMUP_OPERATIONS_PROPERTY = "warmup.operations";
+
+  private static final long CHECK_INTERVAL_MS = 10;
+
+  private final CountDownLatch completeLatch;
+  private final List<ClientThread> clients;
+  private final Measurements measurements;
+  private final long warmupTimeNs;
+  private final long warmupOperations;
+  private volatile boolean done;
+  private long ops;
+  private long timeMs;
+
+  /**
+   * Creates a new WarmupThread and starts the warm-up.
+   *
+   * @param completeLatch    The latch that each client thread will {@link CountDownLatch#countDown()}
+   *                         as they complete.
+   * @param clients          The clients to count operations of.
+   * @param warmupTime       The minimum duration of the warm-up, in seconds.
+   * @param warmupOperations The minimum number of operations of the warm-up.
+   */
+  public WarmupThread(CountDownLatch completeLatch, List<ClientThread> clients, long warmupTime,
+                      long warmupOperations) {
+    this.completeLatch = completeLatch;
+    this.clients = clients;
+    this.warmupTimeNs = TimeUnit.SECONDS.toNanos(warmupTime);
+    this.warmupOperations = warmupOperations;
+    measurements = Measurements.getMeasurements();
+    measurements.setWarmup(true);
+    setDaemon(true);
+  }
+
+  @Override
+  public void run() {
+    final long start = System.nanoTime();
+    try {
+      while (!completeLatch.await(CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        long elapsed = System.nanoTime() - start;
+        long totalops = 0;
+        for (ClientThread t : clients) {
+          totalops += t.getOpsDone();
+        }
+
+        if (elapsed >= warmupTimeNs && totalops >= warmupOperations) {
+          measurements.setWarmup(false);
+          ops = totalops;
+          timeMs = TimeUnit.NANOSECONDS.toMillis(elapsed);
+          done = true;
+          System.err.println("Warm-up done after " + timeMs + " ms and " + ops + " operations.");
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // the run is over
+    }
+    System.err.println("Warning: the run ended during the warm-up.");
+  }
+
+  /**
+   * Whether the warm-up ended before the run did.
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * The number of operations done during the warm-up.
+   */
+  public long getOps() {
+    return ops;
+  }
+
+  /**
+   * The duration of the warm-up, in milliseconds.
+   */
+  public long getTimeMs() {
+    return timeMs;
+  }
+}
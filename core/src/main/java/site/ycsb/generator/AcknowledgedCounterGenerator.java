@@ -16,31 +16,48 @@
  */
 package site.ycsb.generator;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A CounterGenerator that reports generated integers via lastInt()
  * only after they have been acknowledged.
+ *
+ * Acknowledgments set a bit in a window of pending ids without locking. The
+ * thread that finds no other thread moving the limit moves it over the
+ * acknowledged ids that follow it, a word of the window at a time; the
+ * others leave at once. An id acknowledged right after the limit by the
+ * thread moving it, as when one thread inserts, needs no bit at all.
  */
 public class AcknowledgedCounterGenerator extends CounterGenerator {
-  /** The size of the window of pending id ack's. 2^20 = {@value} */
-  static final int WINDOW_SIZE = Integer.rotateLeft(1, 20);
+  /** The size of the window of pending id ack's. 2^22 = {@value} */
+  static final int WINDOW_SIZE = Integer.rotateLeft(1, 22);
 
-  /** The mask to use to turn an id into a slot in {@link #window}. */
+  /** The mask to use to turn an id into a bit of {@link #window}. */
   private static final int WINDOW_MASK = WINDOW_SIZE - 1;
 
-  private final ReentrantLock lock;
-  private final boolean[] window;
-  private volatile long limit;
+  /** One bit per id, 64 ids to a word. */
+  private final AtomicLongArray window;
+  private final AtomicBoolean advancing;
+  private final AtomicLong limit;
 
   /**
    * Create a counter that starts at countstart.
    */
   public AcknowledgedCounterGenerator(long countstart) {
-    super(countstart);
-    lock = new ReentrantLock();
-    window = new boolean[WINDOW_SIZE];
-    limit = countstart - 1;
+    this(countstart, 1);
+  }
+
+  /**
+   * Create a counter that starts at countstart and hands each thread blocks
+   * of blocksize consecutive values.
+   */
+  public AcknowledgedCounterGenerator(long countstart, int blocksize) {
+    super(countstart, blocksize);
+    window = new AtomicLongArray(WINDOW_SIZE / Long.SIZE);
+    advancing = new AtomicBoolean();
+    limit = new AtomicLong(countstart - 1);
   }
 
   /**
@@ -49,40 +66,83 @@ public class AcknowledgedCounterGenerator extends CounterGenerator {
    */
   @Override
   public Long lastValue() {
-    return limit;
+    return limit.get();
   }
 
   /**
    * Make a generated counter value available via lastInt().
    */
   public void acknowledge(long value) {
-    final int currentSlot = (int)(value & WINDOW_MASK);
-    if (window[currentSlot]) {
+    if (value - limit.get() > WINDOW_SIZE) {
       throw new RuntimeException("Too many unacknowledged insertion keys.");
     }
 
-    window[currentSlot] = true;
+    // The thread moving the limit needs no bit for the id right after it.
+    boolean owner = advancing.compareAndSet(false, true);
+    if (owner && value == limit.get() + 1) {
+      limit.lazySet(value);
+    } else {
+      mark(value);
+      owner = owner || advancing.compareAndSet(false, true);
+    }
 
-    if (lock.tryLock()) {
-      // move a contiguous sequence from the window
-      // over to the "limit" variable
+    while (owner) {
       try {
-        // Only loop through the entire window at most once.
-        long beforeFirstSlot = (limit & WINDOW_MASK);
-        long index;
-        for (index = limit + 1; index != beforeFirstSlot; ++index) {
-          int slot = (int)(index & WINDOW_MASK);
-          if (!window[slot]) {
-            break;
-          }
-
-          window[slot] = false;
-        }
-
-        limit = index - 1;
+        advance();
       } finally {
-        lock.unlock();
+        advancing.set(false);
+      }
+      // An id acknowledged while the limit was moving may follow the new limit.
+      owner = isAcknowledged(limit.get() + 1) && advancing.compareAndSet(false, true);
+    }
+  }
+
+  private void mark(long value) {
+    final int word = wordOf(value);
+    final long bit = 1L << (value & (Long.SIZE - 1));
+    long bits;
+    do {
+      bits = window.get(word);
+      if ((bits & bit) != 0) {
+        throw new RuntimeException("Too many unacknowledged insertion keys.");
+      }
+    } while (!window.compareAndSet(word, bits, bits | bit));
+  }
+
+  private boolean isAcknowledged(long value) {
+    return (window.get(wordOf(value)) & (1L << (value & (Long.SIZE - 1)))) != 0;
+  }
+
+  /**
+   * Move the contiguous sequence of acknowledged ids following the limit from
+   * the window over to the limit. Only one thread at a time moves the limit.
+   */
+  private void advance() {
+    long last = limit.get();
+    while (true) {
+      final long first = last + 1;
+      final int word = wordOf(first);
+      final int shift = (int) (first & (Long.SIZE - 1));
+      long bits = window.get(word);
+
+      // the acknowledged ids from first up to the end of its word
+      final int run = Long.numberOfTrailingZeros(~(bits >>> shift));
+      if (run == 0) {
+        return;
       }
+      final long mask = (run == Long.SIZE ? -1L : (1L << run) - 1) << shift;
+
+      // other ids of the word may be acknowledged meanwhile
+      while (!window.compareAndSet(word, bits, bits & ~mask)) {
+        bits = window.get(word);
+      }
+
+      last += run;
+      limit.lazySet(last);
     }
   }
+
+  private static int wordOf(long value) {
+    return (int) ((value & WINDOW_MASK) >>> 6);
+  }
 }
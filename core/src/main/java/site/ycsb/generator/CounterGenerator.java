@@ -25,17 +25,40 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class CounterGenerator extends NumberGenerator {
   private final AtomicLong counter;
+  private final int blocksize;
+  private final ThreadLocal<long[]> block;
 
   /**
    * Create a counter that starts at countstart.
    */
   public CounterGenerator(long countstart) {
+    this(countstart, 1);
+  }
+
+  /**
+   * Create a counter that starts at countstart and hands each thread blocks
+   * of blocksize consecutive values, so that threads rarely contend for the
+   * counter. A thread's values ascend, but values taken by different threads
+   * interleave out of order.
+   */
+  public CounterGenerator(long countstart, int blocksize) {
     counter=new AtomicLong(countstart);
+    this.blocksize = blocksize;
+    // the next value of the thread's block and the end of the block
+    block = blocksize > 1 ? ThreadLocal.withInitial(() -> new long[2]) : null;
   }
 
   @Override
   public Long nextValue() {
-    return counter.getAndIncrement();
+    if (block == null) {
+      return counter.getAndIncrement();
+    }
+    final long[] b = block.get();
+    if (b[0] == b[1]) {
+      b[0] = counter.getAndAdd(blocksize);
+      b[1] = b[0] + blocksize;
+    }
+    return b[0]++;
   }
 
   @Override
@@ -17,6 +17,8 @@
 
 package site.ycsb.measurements;
 
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
 import site.ycsb.Status;
 import site.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -70,7 +72,11 @@ public class Measurements {
   private final ConcurrentHashMap<String, OneMeasurement> opToIntendedMesurementMap;
   private final MeasurementType measurementType;
   private final int measurementInterval;
-  private final Properties props;
+  private volatile Properties props;
+  private volatile Recorder window;
+  private volatile boolean warmup;
+  // changes whenever the measurements an operation name maps to change
+  private volatile int epoch;
 
   /**
    * Create a new object with the specified properties.
@@ -176,16 +182,28 @@ public class Measurements {
     return tlIntendedStartTime.get().startTime();
   }
 
+  /**
+   * Start or end the warm-up, during which measurements are recorded as WARMUP-*.
+   */
+  public synchronized void setWarmup(boolean warmingUp) {
+    warmup = warmingUp;
+    epoch++;
+  }
+
+  private String measurementName(String operation) {
+    return warmup ? "WARMUP-" + operation : operation;
+  }
+
   /**
    * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured
    * value.
    */
-  public void measure(String operation, int latency) {
+  public void measure(String operation, long latency) {
     if (measurementInterval == 1) {
       return;
     }
     try {
-      OneMeasurement m = getOpMeasurement(operation);
+      OneMeasurement m = getOpMeasurement(measurementName(operation));
       m.measure(latency);
     } catch (java.lang.ArrayIndexOutOfBoundsException e) {
       // This seems like a terribly hacky way to cover up for a bug in the measurement code
@@ -199,12 +217,12 @@ public class Measurements {
    * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured
    * value.
    */
-  public void measureIntended(String operation, int latency) {
+  public void measureIntended(String operation, long latency) {
     if (measurementInterval == 0) {
       return;
     }
     try {
-      OneMeasurement m = getOpIntendedMeasurement(operation);
+      OneMeasurement m = getOpIntendedMeasurement(measurementName(operation));
       m.measure(latency);
     } catch (java.lang.ArrayIndexOutOfBoundsException e) {
       // This seems like a terribly hacky way to cover up for a bug in the measurement code
@@ -214,6 +232,28 @@ public class Measurements {
     }
   }
 
+  /**
+   * Report the latencies of a DB operation to the current window, if windows are being recorded. The window takes
+   * the intended latency, unless only actual latencies are measured.
+   */
+  public void measureWindow(long latency, long intendedLatency) {
+    Recorder w = window;
+    if (w != null) {
+      w.recordValue(measurementInterval == 0 ? latency : intendedLatency);
+    }
+  }
+
+  /**
+   * Return the latencies of all DB operations reported since the previous call, starting to record them on the
+   * first call.
+   */
+  public synchronized Histogram takeWindow() {
+    if (window == null) {
+      window = new Recorder(3);
+    }
+    return window.getIntervalHistogram();
+  }
+
   private OneMeasurement getOpMeasurement(String operation) {
     OneMeasurement m = opToMesurementMap.get(operation);
     if (m == null) {
@@ -243,12 +283,90 @@ public class Measurements {
    * Report a return code for a single DB operation.
    */
   public void reportStatus(final String operation, final Status status) {
+    final String name = measurementName(operation);
     OneMeasurement m = measurementInterval == 1 ?
-        getOpIntendedMeasurement(operation) :
-        getOpMeasurement(operation);
+        getOpIntendedMeasurement(name) :
+        getOpMeasurement(name);
     m.reportStatus(status);
   }
 
+  /**
+   * Return a handle on the measurements of an operation, for callers that measure the same operation over and
+   * over, such as DBWrapper.
+   */
+  public Operation getOperation(String operation) {
+    return new Operation(operation);
+  }
+
+  /**
+   * A handle on the measurements of an operation. It looks them up by name only once, and again only once the
+   * measurements are reset or the warm-up starts or ends.
+   */
+  public final class Operation {
+    private final String name;
+    private volatile Resolved resolved;
+
+    private Operation(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    private Resolved resolve() {
+      final int current = epoch;
+      Resolved r = resolved;
+      if (r == null || r.epoch != current) {
+        final String measurementName = measurementName(name);
+        r = new Resolved(current,
+            measurementInterval == 1 ? null : getOpMeasurement(measurementName),
+            measurementInterval == 0 ? null : getOpIntendedMeasurement(measurementName));
+        resolved = r;
+      }
+      return r;
+    }
+
+    /**
+     * Report the actual and the intended latency of one run of the operation, in us.
+     *
+     * @see Measurements#measure(String, long)
+     * @see Measurements#measureIntended(String, long)
+     */
+    public void measure(long latency, long intendedLatency) {
+      final Resolved r = resolve();
+      if (r.measurement != null) {
+        r.measurement.measure(latency);
+      }
+      if (r.intended != null) {
+        r.intended.measure(intendedLatency);
+      }
+    }
+
+    /**
+     * @see Measurements#reportStatus(String, Status)
+     */
+    public void reportStatus(Status status) {
+      final Resolved r = resolve();
+      (measurementInterval == 1 ? r.intended : r.measurement).reportStatus(status);
+    }
+  }
+
+  /**
+   * The measurements an operation name maps to in an epoch.
+   */
+  private static final class Resolved {
+    private final int epoch;
+    private final OneMeasurement measurement;
+    private final OneMeasurement intended;
+
+    Resolved(int epoch, OneMeasurement measurement, OneMeasurement intended) {
+      this.epoch = epoch;
+      this.measurement = measurement;
+      this.intended = intended;
+    }
+  }
+
   /**
    * Export the current measurements to a suitable format.
    *
@@ -264,6 +382,27 @@ public class Measurements {
     }
   }
 
+  /**
+   * Discard all the measurements, e.g. once those of a phase have been exported, and end the warm-up and the
+   * recording of windows.
+   */
+  public synchronized void reset() {
+    reset(props);
+  }
+
+  /**
+   * Discard all the measurements as {@link #reset()} does, and take the properties of the measurements created from
+   * then on, e.g. those of the next phase. The measurement type and interval stay those of the first properties.
+   */
+  public synchronized void reset(Properties newProps) {
+    props = newProps;
+    opToMesurementMap.clear();
+    opToIntendedMesurementMap.clear();
+    window = null;
+    warmup = false;
+    epoch++;
+  }
+
   /**
    * Return a one line summary of the measurements.
    */
@@ -30,6 +30,12 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public abstract class OneMeasurement {
 
+  /**
+   * The number of stripes measurements spread their recording over, a power of two. It is bounded by the CPUs
+   * rather than by the threads measuring, which with virtual threads may number in the hundreds of thousands.
+   */
+  protected static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1);
+
   private final String name;
   private final ConcurrentHashMap<Status, AtomicInteger> returncodes;
 
@@ -45,7 +51,14 @@ public abstract class OneMeasurement {
     this.returncodes = new ConcurrentHashMap<>();
   }
 
-  public abstract void measure(int latency);
+  public abstract void measure(long latency);
+
+  /**
+   * @return the stripe the current thread records into.
+   */
+  protected static int stripe() {
+    return (int) Thread.currentThread().getId() & (STRIPES - 1);
+  }
 
   public abstract String getSummary();
 
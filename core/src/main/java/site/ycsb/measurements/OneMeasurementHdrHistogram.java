@@ -35,6 +35,9 @@ import java.util.Properties;
 /**
  * Take measurements and maintain a HdrHistogram of a given metric, such as READ LATENCY.
  *
+ * Threads record into a fixed set of recorders, picked by thread, so that
+ * threads measuring at once seldom contend. The recorders are merged into an
+ * interval histogram whenever a summary is taken, and once more on export.
  */
 public class OneMeasurementHdrHistogram extends OneMeasurement {
 
@@ -42,7 +45,8 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   private final PrintStream log;
   private final HistogramLogWriter histogramLogWriter;
 
-  private final Recorder histogram;
+  private final Recorder[] recorders = new Recorder[STRIPES];
+  private long intervalStart;
   private Histogram totalHistogram;
 
   /**
@@ -60,6 +64,17 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    */
   public static final String VERBOSE_PROPERTY = "measurement.histogram.verbose";
 
+  /**
+   * The name of the property for the path prefix of the interval log files.
+   */
+  public static final String OUTPUT_PATH_PROPERTY = "hdrhistogram.output.path";
+
+  /**
+   * The name of the property for the number of the phase measured, if the run has several (see the "phases"
+   * property) sharing an output path. Each phase then logs to files of its own.
+   */
+  public static final String OUTPUT_PHASE_PROPERTY = "hdrhistogram.output.phase";
+
   /**
    * Whether or not to emit the histogram buckets.
    */
@@ -77,7 +92,9 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       histogramLogWriter = null;
     } else {
       try {
-        final String hdrOutputFilename = props.getProperty("hdrhistogram.output.path", "") + name + ".hdr";
+        final String phase = props.getProperty(OUTPUT_PHASE_PROPERTY);
+        final String hdrOutputFilename = props.getProperty(OUTPUT_PATH_PROPERTY, "") + name
+            + (phase == null ? "" : "." + phase) + ".hdr";
         log = new PrintStream(new FileOutputStream(hdrOutputFilename), false);
       } catch (FileNotFoundException e) {
         throw new RuntimeException("Failed to open hdr histogram output file", e);
@@ -90,15 +107,18 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       histogramLogWriter.setBaseTime(now);
       histogramLogWriter.outputLegend();
     }
-    histogram = new Recorder(3);
+    for (int i = 0; i < recorders.length; i++) {
+      recorders[i] = new Recorder(3);
+    }
+    intervalStart = System.currentTimeMillis();
   }
 
   /**
    * It appears latency is reported in micros.
-   * Using {@link Recorder} to support concurrent updates to histogram.
+   * Using {@link Recorder}s striped by thread to support concurrent updates to histogram.
    */
-  public void measure(int latencyInMicros) {
-    histogram.recordValue(latencyInMicros);
+  public void measure(long latencyInMicros) {
+    recorders[stripe()].recordValue(latencyInMicros);
   }
 
   /**
@@ -164,8 +184,14 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
         + d.format(intervalHistogram.getValueAtPercentile(99.99)) + "]";
   }
 
-  private Histogram getIntervalHistogramAndAccumulate() {
-    Histogram intervalHistogram = histogram.getIntervalHistogram();
+  private synchronized Histogram getIntervalHistogramAndAccumulate() {
+    Histogram intervalHistogram = new Histogram(3);
+    for (Recorder r : recorders) {
+      intervalHistogram.add(r.getIntervalHistogram());
+    }
+    intervalHistogram.setStartTimeStamp(intervalStart);
+    intervalStart = System.currentTimeMillis();
+    intervalHistogram.setEndTimeStamp(intervalStart);
     // add this to the total time histogram.
     if (totalHistogram == null) {
       totalHistogram = intervalHistogram;
@@ -205,7 +231,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    * @param i number
    * @return ordinal string
    */
-  private String ordinal(Double i) {
+  public static String ordinal(Double i) {
     String[] suffixes = new String[]{"th", "st", "nd", "rd", "th", "th", "th", "th", "th", "th"};
     Integer j = i.intValue();
     if (i % 1 == 0) {
@@ -26,6 +26,10 @@ import java.util.Properties;
 /**
  * Take measurements and maintain a histogram of a given metric, such as READ LATENCY.
  *
+ * Threads record into a fixed set of stripes of arrays and counters, picked
+ * by thread, so that threads measuring at once seldom contend. The stripes
+ * are merged on export, and their operations and latencies are summed
+ * whenever a summary is taken.
  */
 public class OneMeasurementHistogram extends OneMeasurement {
   public static final String BUCKETS = "histogram.buckets";
@@ -37,88 +41,121 @@ public class OneMeasurementHistogram extends OneMeasurement {
    */
   private final int buckets;
 
-  /**
-   * Groups operations in discrete blocks of 1ms width.
-   */
-  private long[] histogram;
-
-  /**
-   * Counts all operations outside the histogram's range.
-   */
-  private long histogramoverflow;
-
-  /**
-   * The total number of reported operations.
-   */
-  private long operations;
-
-  /**
-   * The sum of each latency measurement over all operations.
-   * Calculated in ms.
-   */
-  private long totallatency;
-
-  /**
-   * The sum of each latency measurement squared over all operations. 
-   * Used to calculate variance of latency.
-   * Calculated in ms. 
-   */
-  private double totalsquaredlatency;
-
   /**
    * Whether or not to emit the histogram buckets.
    */
   private final boolean verbose;
-  
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
   //keep a windowed version of these stats for printing status
   private long windowoperations;
   private long windowtotallatency;
 
-  private int min;
-  private int max;
+  /**
+   * The measurements of the threads picking one stripe, guarded by the stripe.
+   */
+  private static final class Stripe {
+    /**
+     * Groups operations in discrete blocks of 1ms width.
+     */
+    private final long[] histogram;
+
+    /**
+     * Counts all operations outside the histogram's range.
+     */
+    private long histogramoverflow;
+
+    /**
+     * The total number of reported operations.
+     */
+    private long operations;
+
+    /**
+     * The sum of each latency measurement over all operations.
+     * Calculated in ms.
+     */
+    private long totallatency;
+
+    /**
+     * The sum of each latency measurement squared over all operations.
+     * Used to calculate variance of latency.
+     * Calculated in ms.
+     */
+    private double totalsquaredlatency;
+
+    private long min = -1;
+    private long max = -1;
+
+    Stripe(int buckets) {
+      histogram = new long[buckets];
+    }
+  }
 
   public OneMeasurementHistogram(String name, Properties props) {
     super(name);
     buckets = Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
     verbose = Boolean.valueOf(props.getProperty(VERBOSE_PROPERTY, String.valueOf(false)));
-    histogram = new long[buckets];
-    histogramoverflow = 0;
-    operations = 0;
-    totallatency = 0;
-    totalsquaredlatency = 0;
-    windowoperations = 0;
-    windowtotallatency = 0;
-    min = -1;
-    max = -1;
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe(buckets);
+    }
   }
 
   /* (non-Javadoc)
-   * @see site.ycsb.OneMeasurement#measure(int)
+   * @see site.ycsb.OneMeasurement#measure(long)
    */
-  public synchronized void measure(int latency) {
+  public void measure(long latency) {
+    final Stripe h = stripes[stripe()];
+    synchronized (h) {
+      measure(h, latency);
+    }
+  }
+
+  private void measure(Stripe h, long latency) {
     //latency reported in us and collected in bucket by ms.
     if (latency / 1000 >= buckets) {
-      histogramoverflow++;
+      h.histogramoverflow++;
     } else {
-      histogram[latency / 1000]++;
+      h.histogram[(int) (latency / 1000)]++;
     }
-    operations++;
-    totallatency += latency;
-    totalsquaredlatency += ((double) latency) * ((double) latency);
-    windowoperations++;
-    windowtotallatency += latency;
-
-    if ((min < 0) || (latency < min)) {
-      min = latency;
+    h.operations++;
+    h.totallatency += latency;
+    h.totalsquaredlatency += ((double) latency) * ((double) latency);
+
+    if ((h.min < 0) || (latency < h.min)) {
+      h.min = latency;
     }
 
-    if ((max < 0) || (latency > max)) {
-      max = latency;
+    if ((h.max < 0) || (latency > h.max)) {
+      h.max = latency;
     }
   }
 
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    final long[] merged = new long[buckets];
+    long histogramoverflow = 0;
+    long operations = 0;
+    long totallatency = 0;
+    double totalsquaredlatency = 0;
+    long min = -1;
+    long max = -1;
+    for (Stripe h : stripes) {
+      synchronized (h) {
+        for (int i = 0; i < buckets; i++) {
+          merged[i] += h.histogram[i];
+        }
+        histogramoverflow += h.histogramoverflow;
+        operations += h.operations;
+        totallatency += h.totallatency;
+        totalsquaredlatency += h.totalsquaredlatency;
+        if (h.min >= 0 && (min < 0 || h.min < min)) {
+          min = h.min;
+        }
+        max = Math.max(max, h.max);
+      }
+    }
+
     double mean = totallatency / ((double) operations);
     double variance = totalsquaredlatency / ((double) operations) - (mean * mean);
     exporter.write(getName(), "Operations", operations);
@@ -130,7 +167,7 @@ public class OneMeasurementHistogram extends OneMeasurement {
     long opcounter=0;
     boolean done95th = false;
     for (int i = 0; i < buckets; i++) {
-      opcounter += histogram[i];
+      opcounter += merged[i];
       if ((!done95th) && (((double) opcounter) / ((double) operations) >= 0.95)) {
         exporter.write(getName(), "95thPercentileLatency(us)", i * 1000);
         done95th = true;
@@ -145,7 +182,7 @@ public class OneMeasurementHistogram extends OneMeasurement {
 
     if (verbose) {
       for (int i = 0; i < buckets; i++) {
-        exporter.write(getName(), Integer.toString(i), histogram[i]);
+        exporter.write(getName(), Integer.toString(i), merged[i]);
       }
       
       exporter.write(getName(), ">" + buckets, histogramoverflow);
@@ -153,14 +190,24 @@ public class OneMeasurementHistogram extends OneMeasurement {
   }
 
   @Override
-  public String getSummary() {
-    if (windowoperations == 0) {
+  public synchronized String getSummary() {
+    long operations = 0;
+    long totallatency = 0;
+    for (Stripe h : stripes) {
+      synchronized (h) {
+        operations += h.operations;
+        totallatency += h.totallatency;
+      }
+    }
+    long intervaloperations = operations - windowoperations;
+    long intervaltotallatency = totallatency - windowtotallatency;
+    windowoperations = operations;
+    windowtotallatency = totallatency;
+    if (intervaloperations == 0) {
       return "";
     }
     DecimalFormat d = new DecimalFormat("#.##");
-    double report = ((double) windowtotallatency) / ((double) windowoperations);
-    windowtotallatency = 0;
-    windowoperations = 0;
+    double report = ((double) intervaltotallatency) / ((double) intervaloperations);
     return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
   }
 }
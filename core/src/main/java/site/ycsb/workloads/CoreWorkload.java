@@ -24,6 +24,7 @@ import site.ycsb.measurements.Measurements;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * The core benchmark scenario. Represents a set of clients doing simple CRUD operations. The
@@ -38,12 +39,20 @@ import java.util.*;
  * <LI><b>readallfields</b>: should reads read all fields (true) or just one (false) (default: true)
  * <LI><b>writeallfields</b>: should updates and read/modify/writes update all fields (true) or just
  * one (false) (default: false)
+ * <LI><b>readbatchsize</b>: how many records each read reads at once, with DB.batchRead (default: 1)
+ * <LI><b>writebatchsize</b>: how many records each insert, and each update, writes at once, with
+ * DB.batchInsert and DB.batchUpdate (default: 1)
  * <LI><b>readproportion</b>: what proportion of operations should be reads (default: 0.95)
  * <LI><b>updateproportion</b>: what proportion of operations should be updates (default: 0.05)
  * <LI><b>insertproportion</b>: what proportion of operations should be inserts (default: 0)
  * <LI><b>scanproportion</b>: what proportion of operations should be scans (default: 0)
  * <LI><b>readmodifywriteproportion</b>: what proportion of operations should be read a record,
  * modify it, write it back (default: 0)
+ * <LI><b>syncproportion</b>: what proportion of operations should make all previous writes durable
+ * (default: 0)
+ * <LI><b>prefixdeleteproportion</b>: what proportion of operations should delete every record sharing
+ * a key prefix (default: 0)
+ * <LI><b>prefixdeletelength</b>: for prefix deletes, the length of the key prefix (default: 6)
  * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate
  * on - uniform, zipfian, hotspot, sequential, exponential or latest (default: uniform)
  * <LI><b>minscanlength</b>: for scans, what is the minimum number of records to scan (default: 1)
@@ -61,6 +70,8 @@ import java.util.*;
  * digits in the record number.
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed
  * order ("hashed") (default: hashed)
+ * <LI><b>insertkeyblocksize</b>: how many consecutive new key numbers each thread takes at once for
+ * the inserts of the transaction phase (default: 1)
  * <LI><b>fieldnameprefix</b>: what should be a prefix for field names, the shorter may decrease the
  * required storage size (default: "field")
  * </ul>
@@ -168,6 +179,33 @@ public class CoreWorkload extends Workload {
 
   protected boolean writeallfields;
 
+  /**
+   * The name of the property for the number of records read at once by a read. Above 1, reads use
+   * {@link DB#batchRead}, and each batch counts as one operation.
+   */
+  public static final String READ_BATCH_SIZE_PROPERTY = "readbatchsize";
+
+  /**
+   * The default value for the readbatchsize property.
+   */
+  public static final String READ_BATCH_SIZE_PROPERTY_DEFAULT = "1";
+
+  protected int readbatchsize;
+
+  /**
+   * The name of the property for the number of records written at once by an insert, during the load or
+   * the transactions, and by an update. Above 1, inserts and updates use {@link DB#batchInsert} and
+   * {@link DB#batchUpdate}, and each batch counts as one operation.
+   */
+  public static final String WRITE_BATCH_SIZE_PROPERTY = "writebatchsize";
+
+  /**
+   * The default value for the writebatchsize property.
+   */
+  public static final String WRITE_BATCH_SIZE_PROPERTY_DEFAULT = "1";
+
+  protected int writebatchsize;
+
   /**
    * The name of the property for deciding whether to check all returned
    * data against the formation template to ensure data integrity.
@@ -235,6 +273,36 @@ public class CoreWorkload extends Workload {
    */
   public static final String READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT = "0.0";
 
+  /**
+   * The name of the property for the proportion of transactions that are syncs.
+   */
+  public static final String SYNC_PROPORTION_PROPERTY = "syncproportion";
+
+  /**
+   * The default proportion of transactions that are syncs.
+   */
+  public static final String SYNC_PROPORTION_PROPERTY_DEFAULT = "0.0";
+
+  /**
+   * The name of the property for the proportion of transactions that are prefix deletes.
+   */
+  public static final String PREFIX_DELETE_PROPORTION_PROPERTY = "prefixdeleteproportion";
+
+  /**
+   * The default proportion of transactions that are prefix deletes.
+   */
+  public static final String PREFIX_DELETE_PROPORTION_PROPERTY_DEFAULT = "0.0";
+
+  /**
+   * The name of the property for the length of the key prefix removed by a prefix delete.
+   */
+  public static final String PREFIX_DELETE_LENGTH_PROPERTY = "prefixdeletelength";
+
+  /**
+   * The default prefix delete length: "user" and two digits.
+   */
+  public static final String PREFIX_DELETE_LENGTH_PROPERTY_DEFAULT = "6";
+
   /**
    * The name of the property for the the distribution of requests across the keyspace. Options are
    * "uniform", "zipfian" and "latest"
@@ -299,6 +367,19 @@ public class CoreWorkload extends Workload {
    */
   public static final String INSERT_ORDER_PROPERTY_DEFAULT = "hashed";
 
+  /**
+   * The name of the property for the number of consecutive key numbers a thread takes at once from the
+   * shared sequence of new keys, for the inserts of the transaction phase. Larger blocks spare the threads
+   * contending for the sequence, but the latest acknowledged key, which the "latest" request distribution
+   * follows, may lag behind the newest inserts by up to a block per thread.
+   */
+  public static final String INSERT_KEY_BLOCK_SIZE_PROPERTY = "insertkeyblocksize";
+
+  /**
+   * Default insert key block size.
+   */
+  public static final String INSERT_KEY_BLOCK_SIZE_PROPERTY_DEFAULT = "1";
+
   /**
    * Percentage data items that constitute the hot set.
    */
@@ -351,8 +432,11 @@ public class CoreWorkload extends Workload {
   protected long fieldcount;
   protected long recordcount;
   protected int zeropadding;
+  protected int prefixdeletelength;
   protected int insertionRetryLimit;
   protected int insertionRetryInterval;
+  protected long loadstart;
+  protected long loadend;
 
   private Measurements measurements = Measurements.getMeasurements();
 
@@ -420,7 +504,7 @@ public class CoreWorkload extends Workload {
     long insertstart =
         Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
     long insertcount=
-        Integer.parseInt(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
+        Long.parseLong(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
     // Confirm valid values for insertstart and insertcount in relation to recordcount
     if (recordcount < (insertstart + insertcount)) {
       System.err.println("Invalid combination of insertstart, insertcount and recordcount.");
@@ -429,12 +513,25 @@ public class CoreWorkload extends Workload {
     }
     zeropadding =
         Integer.parseInt(p.getProperty(ZERO_PADDING_PROPERTY, ZERO_PADDING_PROPERTY_DEFAULT));
+    prefixdeletelength = Integer.parseInt(
+        p.getProperty(PREFIX_DELETE_LENGTH_PROPERTY, PREFIX_DELETE_LENGTH_PROPERTY_DEFAULT));
 
     readallfields = Boolean.parseBoolean(
         p.getProperty(READ_ALL_FIELDS_PROPERTY, READ_ALL_FIELDS_PROPERTY_DEFAULT));
     writeallfields = Boolean.parseBoolean(
         p.getProperty(WRITE_ALL_FIELDS_PROPERTY, WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
 
+    readbatchsize = Integer.parseInt(p.getProperty(READ_BATCH_SIZE_PROPERTY, READ_BATCH_SIZE_PROPERTY_DEFAULT));
+    writebatchsize = Integer.parseInt(p.getProperty(WRITE_BATCH_SIZE_PROPERTY, WRITE_BATCH_SIZE_PROPERTY_DEFAULT));
+    if (readbatchsize < 1 || writebatchsize < 1) {
+      throw new WorkloadException(READ_BATCH_SIZE_PROPERTY + " and " + WRITE_BATCH_SIZE_PROPERTY
+          + " must be positive");
+    }
+    // the records loaded, as Client counts them: each thread loads its share of them
+    loadstart = insertstart;
+    loadend = insertstart + Long.parseLong(p.getProperty(Client.INSERT_COUNT_PROPERTY,
+        p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT)));
+
     dataintegrity = Boolean.parseBoolean(
         p.getProperty(DATA_INTEGRITY_PROPERTY, DATA_INTEGRITY_PROPERTY_DEFAULT));
     // Confirm that fieldlengthgenerator returns a constant if data
@@ -455,7 +552,12 @@ public class CoreWorkload extends Workload {
     keysequence = new CounterGenerator(insertstart);
     operationchooser = createOperationGenerator(p);
 
-    transactioninsertkeysequence = new AcknowledgedCounterGenerator(recordcount);
+    int insertkeyblocksize = Integer.parseInt(
+        p.getProperty(INSERT_KEY_BLOCK_SIZE_PROPERTY, INSERT_KEY_BLOCK_SIZE_PROPERTY_DEFAULT));
+    if (insertkeyblocksize < 1) {
+      throw new WorkloadException(INSERT_KEY_BLOCK_SIZE_PROPERTY + " must be positive");
+    }
+    transactioninsertkeysequence = new AcknowledgedCounterGenerator(recordcount, insertkeyblocksize);
     if (requestdistrib.compareTo("uniform") == 0) {
       keychooser = new UniformLongGenerator(insertstart, insertstart + insertcount - 1);
     } else if (requestdistrib.compareTo("exponential") == 0) {
@@ -480,8 +582,8 @@ public class CoreWorkload extends Workload {
       // the keyspace doesn't change from the perspective of the scrambled zipfian generator
       final double insertproportion = Double.parseDouble(
           p.getProperty(INSERT_PROPORTION_PROPERTY, INSERT_PROPORTION_PROPERTY_DEFAULT));
-      int opcount = Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-      int expectednewkeys = (int) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
+      long opcount = Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
+      long expectednewkeys = (long) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
 
       keychooser = new ScrambledZipfianGenerator(insertstart, insertstart + insertcount + expectednewkeys);
     } else if (requestdistrib.compareTo("latest") == 0) {
@@ -549,7 +651,7 @@ public class CoreWorkload extends Workload {
   /**
    * Builds values for all fields.
    */
-  private HashMap<String, ByteIterator> buildValues(String key) {
+  protected HashMap<String, ByteIterator> buildValues(String key) {
     HashMap<String, ByteIterator> values = new HashMap<>();
 
     for (String fieldkey : fieldnames) {
@@ -583,6 +685,53 @@ public class CoreWorkload extends Workload {
     return sb.toString();
   }
 
+  /**
+   * A client thread's share of the load: a contiguous range of key numbers, so
+   * that threads loading do not contend for a shared key sequence.
+   */
+  protected static final class LoadRange {
+    private long next;
+    private final long end;
+
+    LoadRange(long start, long end) {
+      this.next = start;
+      this.end = end;
+    }
+  }
+
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+    if (loadend <= loadstart) {
+      // no count to share out: the threads share the key sequence
+      return null;
+    }
+    return new LoadRange(loadRangeStart(mythreadid, threadcount), loadRangeStart(mythreadid + 1, threadcount));
+  }
+
+  /**
+   * The first key number of a thread's share of the load. Thread i of n gets
+   * (loadend - loadstart) / n key numbers, plus one more for the first
+   * (loadend - loadstart) % n threads, as Client shares out the operations.
+   */
+  protected long loadRangeStart(int threadid, int threadcount) {
+    long count = loadend - loadstart;
+    return loadstart + threadid * (count / threadcount) + Math.min(threadid, count % threadcount);
+  }
+
+  /**
+   * The next key number to load: the next of the thread's range, or of the
+   * shared key sequence if the thread has no range.
+   *
+   * @return the key number, or -1 once the thread's range is loaded
+   */
+  protected long nextLoadKeynum(Object threadstate) {
+    if (threadstate instanceof LoadRange) {
+      LoadRange range = (LoadRange) threadstate;
+      return range.next < range.end ? range.next++ : -1;
+    }
+    return keysequence.nextValue().longValue();
+  }
+
   /**
    * Do one insert operation. Because it will be called concurrently from multiple client threads,
    * this function must be thread safe. However, avoid synchronized, or the threads will block waiting
@@ -591,14 +740,61 @@ public class CoreWorkload extends Workload {
    */
   @Override
   public boolean doInsert(DB db, Object threadstate) {
-    int keynum = keysequence.nextValue().intValue();
+    if (writebatchsize > 1) {
+      return doBatchInsert(db, threadstate);
+    }
+    long keynum = nextLoadKeynum(threadstate);
+    if (keynum < 0) {
+      return false;
+    }
     String dbkey = buildKeyName(keynum);
+    return insertRecord(db, dbkey);
+  }
+
+  /**
+   * Insert the next writebatchsize records of the load at once.
+   *
+   * @return whether the records were inserted, false once the load is done
+   */
+  protected boolean doBatchInsert(DB db, Object threadstate) {
+    List<String> keys = new ArrayList<>(writebatchsize);
+    List<Map<String, ByteIterator>> values = new ArrayList<>(writebatchsize);
+    for (int i = 0; i < writebatchsize; i++) {
+      long keynum = nextLoadKeynum(threadstate);
+      if (keynum < 0) {
+        break;
+      }
+      String dbkey = buildKeyName(keynum);
+      keys.add(dbkey);
+      values.add(buildValues(dbkey));
+    }
+    if (keys.isEmpty()) {
+      return false;
+    }
+    return retryInsert(() -> db.batchInsert(table, keys, values));
+  }
+
+  /**
+   * Insert a newly built record under the given key, retrying according to
+   * the insertion retry properties.
+   *
+   * @return whether the record was inserted
+   */
+  protected boolean insertRecord(DB db, String dbkey) {
     HashMap<String, ByteIterator> values = buildValues(dbkey);
+    return retryInsert(() -> db.insert(table, dbkey, values));
+  }
 
+  /**
+   * Insert, retrying according to the insertion retry properties.
+   *
+   * @return whether the insert succeeded
+   */
+  private boolean retryInsert(Supplier<Status> insert) {
     Status status;
     int numOfRetries = 0;
     do {
-      status = db.insert(table, dbkey, values);
+      status = insert.get();
       if (null != status && status.isOk()) {
         break;
       }
@@ -652,6 +848,12 @@ public class CoreWorkload extends Workload {
     case "SCAN":
       doTransactionScan(db);
       break;
+    case "SYNC":
+      doTransactionSync(db);
+      break;
+    case "PREFIXDELETE":
+      doTransactionPrefixDelete(db);
+      break;
     default:
       doTransactionReadModifyWrite(db);
     }
@@ -666,7 +868,7 @@ public class CoreWorkload extends Workload {
    * Bucket 1 means incorrect data was returned.
    * Bucket 2 means null data was returned when some data was expected.
    */
-  protected void verifyRow(String key, HashMap<String, ByteIterator> cells) {
+  protected void verifyRow(String key, Map<String, ByteIterator> cells) {
     Status verifyStatus = Status.OK;
     long startTime = System.nanoTime();
     if (!cells.isEmpty()) {
@@ -689,22 +891,60 @@ public class CoreWorkload extends Workload {
     long keynum;
     if (keychooser instanceof ExponentialGenerator) {
       do {
-        keynum = transactioninsertkeysequence.lastValue() - keychooser.nextValue().intValue();
+        keynum = transactioninsertkeysequence.lastValue() - keychooser.nextValue().longValue();
       } while (keynum < 0);
     } else {
       do {
-        keynum = keychooser.nextValue().intValue();
+        keynum = keychooser.nextValue().longValue();
       } while (keynum > transactioninsertkeysequence.lastValue());
     }
     return keynum;
   }
 
   public void doTransactionRead(DB db) {
+    if (readbatchsize > 1) {
+      doTransactionBatchRead(db);
+      return;
+    }
+
     // choose a random key
     long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
+    HashSet<String> fields = chooseReadFields();
+
+    HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    db.read(table, keyname, fields, cells);
+
+    if (dataintegrity) {
+      verifyRow(keyname, cells);
+    }
+  }
+
+  /**
+   * Read readbatchsize random records at once.
+   */
+  public void doTransactionBatchRead(DB db) {
+    List<String> keys = new ArrayList<>(readbatchsize);
+    for (int i = 0; i < readbatchsize; i++) {
+      keys.add(buildKeyName(nextKeynum()));
+    }
+
+    List<Map<String, ByteIterator>> results = new ArrayList<>(readbatchsize);
+    db.batchRead(table, keys, chooseReadFields(), results);
+
+    if (dataintegrity) {
+      for (int i = 0; i < results.size(); i++) {
+        verifyRow(keys.get(i), results.get(i));
+      }
+    }
+  }
+
+  /**
+   * Choose the fields a read reads: a random one, or all of them, null unless data integrity is checked.
+   */
+  private HashSet<String> chooseReadFields() {
     HashSet<String> fields = null;
 
     if (!readallfields) {
@@ -717,13 +957,7 @@ public class CoreWorkload extends Workload {
       // pass the full field list if dataintegrity is on for verification
       fields = new HashSet<String>(fieldnames);
     }
-
-    HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
-    db.read(table, keyname, fields, cells);
-
-    if (dataintegrity) {
-      verifyRow(keyname, cells);
-    }
+    return fields;
   }
 
   public void doTransactionReadModifyWrite(DB db) {
@@ -796,25 +1030,53 @@ public class CoreWorkload extends Workload {
   }
 
   public void doTransactionUpdate(DB db) {
+    if (writebatchsize > 1) {
+      doTransactionBatchUpdate(db);
+      return;
+    }
+
     // choose a random key
     long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
-    HashMap<String, ByteIterator> values;
+    db.update(table, keyname, buildUpdateValues(keyname));
+  }
+
+  /**
+   * Update writebatchsize random records at once.
+   */
+  public void doTransactionBatchUpdate(DB db) {
+    List<String> keys = new ArrayList<>(writebatchsize);
+    List<Map<String, ByteIterator>> values = new ArrayList<>(writebatchsize);
+    for (int i = 0; i < writebatchsize; i++) {
+      String keyname = buildKeyName(nextKeynum());
+      keys.add(keyname);
+      values.add(buildUpdateValues(keyname));
+    }
+
+    db.batchUpdate(table, keys, values);
+  }
 
+  /**
+   * Build the values an update writes: new data for all the fields, or for a random one.
+   */
+  private HashMap<String, ByteIterator> buildUpdateValues(String keyname) {
     if (writeallfields) {
       // new data for all the fields
-      values = buildValues(keyname);
+      return buildValues(keyname);
     } else {
       // update a random field
-      values = buildSingleValue(keyname);
+      return buildSingleValue(keyname);
     }
-
-    db.update(table, keyname, values);
   }
 
   public void doTransactionInsert(DB db) {
+    if (writebatchsize > 1) {
+      doTransactionBatchInsert(db);
+      return;
+    }
+
     // choose the next key
     long keynum = transactioninsertkeysequence.nextValue();
 
@@ -828,11 +1090,50 @@ public class CoreWorkload extends Workload {
     }
   }
 
+  /**
+   * Insert the next writebatchsize new records at once.
+   */
+  public void doTransactionBatchInsert(DB db) {
+    long[] keynums = new long[writebatchsize];
+    for (int i = 0; i < writebatchsize; i++) {
+      keynums[i] = transactioninsertkeysequence.nextValue();
+    }
+
+    try {
+      List<String> keys = new ArrayList<>(writebatchsize);
+      List<Map<String, ByteIterator>> values = new ArrayList<>(writebatchsize);
+      for (long keynum : keynums) {
+        String dbkey = buildKeyName(keynum);
+        keys.add(dbkey);
+        values.add(buildValues(dbkey));
+      }
+      db.batchInsert(table, keys, values);
+    } finally {
+      for (long keynum : keynums) {
+        transactioninsertkeysequence.acknowledge(keynum);
+      }
+    }
+  }
+
+  public void doTransactionSync(DB db) {
+    db.sync();
+  }
+
+  public void doTransactionPrefixDelete(DB db) {
+    // choose a random key, and delete every record sharing its prefix
+    long keynum = nextKeynum();
+
+    String keyname = buildKeyName(keynum);
+
+    db.prefixDelete(table, keyname.substring(0, Math.min(prefixdeletelength, keyname.length())));
+  }
+
   /**
    * Creates a weighted discrete values with database operations for a workload to perform.
    * Weights/proportions are read from the properties list and defaults are used
    * when values are not configured.
-   * Current operations are "READ", "UPDATE", "INSERT", "SCAN" and "READMODIFYWRITE".
+   * Current operations are "READ", "UPDATE", "INSERT", "SCAN", "READMODIFYWRITE", "SYNC" and
+   * "PREFIXDELETE".
    *
    * @param p The properties list to pull weights from.
    * @return A generator that can be used to determine the next operation to perform.
@@ -852,6 +1153,10 @@ public class CoreWorkload extends Workload {
         p.getProperty(SCAN_PROPORTION_PROPERTY, SCAN_PROPORTION_PROPERTY_DEFAULT));
     final double readmodifywriteproportion = Double.parseDouble(p.getProperty(
         READMODIFYWRITE_PROPORTION_PROPERTY, READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
+    final double syncproportion = Double.parseDouble(
+        p.getProperty(SYNC_PROPORTION_PROPERTY, SYNC_PROPORTION_PROPERTY_DEFAULT));
+    final double prefixdeleteproportion = Double.parseDouble(
+        p.getProperty(PREFIX_DELETE_PROPORTION_PROPERTY, PREFIX_DELETE_PROPORTION_PROPERTY_DEFAULT));
 
     final DiscreteGenerator operationchooser = new DiscreteGenerator();
     if (readproportion > 0) {
@@ -873,6 +1178,14 @@ public class CoreWorkload extends Workload {
     if (readmodifywriteproportion > 0) {
       operationchooser.addValue(readmodifywriteproportion, "READMODIFYWRITE");
     }
+
+    if (syncproportion > 0) {
+      operationchooser.addValue(syncproportion, "SYNC");
+    }
+
+    if (prefixdeleteproportion > 0) {
+      operationchooser.addValue(prefixdeleteproportion, "PREFIXDELETE");
+    }
     return operationchooser;
   }
 }
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link ArrivalSchedule}.
+ */
+public class TestArrivalSchedule {
+  private static final int ARRIVALS = 100000;
+
+  /**
+   * Take arrivals from a schedule of 1000 operations per second and check that they are in order and that
+   * the mean gap is within 2% of a millisecond.
+   */
+  private static void checkSchedule(boolean poisson) {
+    final ArrivalSchedule schedule = new ArrivalSchedule(new TargetRate(1000), poisson);
+    final long first = schedule.next();
+    long last = first;
+    for (int i = 1; i < ARRIVALS; i++) {
+      final long arrival = schedule.next();
+      assertTrue(arrival >= last);
+      last = arrival;
+    }
+
+    final double meanGapNs = (double) (last - first) / (ARRIVALS - 1);
+    assertTrue(Math.abs(meanGapNs - 1000000) < 20000, "mean gap " + meanGapNs);
+  }
+
+  @Test
+  public void poissonArrivalsKeepTheRate() {
+    checkSchedule(true);
+  }
+
+  @Test
+  public void uniformArrivalsKeepTheRate() {
+    checkSchedule(false);
+  }
+
+  @Test
+  public void restartStartsTheScheduleAgain() {
+    final TargetRate rate = new TargetRate(1);
+    final ArrivalSchedule schedule = new ArrivalSchedule(rate, true);
+    for (int i = 0; i < 100; i++) {
+      schedule.next();
+    }
+
+    // 100 arrivals at 1 per second are due in about 100 seconds; after a restart the next one is due now.
+    rate.restart(1);
+    assertTrue(schedule.next() <= System.nanoTime());
+  }
+
+  @Test
+  public void zeroRatePausesArrivals() throws IOException {
+    final TargetRate rate = new TargetRate(TargetProfile.parse("0:0,0.2:1000"));
+    final ArrivalSchedule schedule = new ArrivalSchedule(rate, true);
+    rate.start();
+    final long start = System.nanoTime();
+
+    // A stopped client gives up waiting, and the others wait for the rate to become positive.
+    assertEquals(schedule.next(() -> true), -1);
+    assertTrue(schedule.next() - start >= 200000000L, "arrival during the pause");
+  }
+
+  @Test
+  public void concurrentStartTakesNoStaleArrival() throws InterruptedException {
+    final TargetRate rate = new TargetRate(1000);
+    for (int round = 0; round < 100; round++) {
+      final ArrivalSchedule schedule = new ArrivalSchedule(rate, false);
+      final long before = System.nanoTime();
+      final AtomicLong earliest = new AtomicLong(Long.MAX_VALUE);
+      final CountDownLatch start = new CountDownLatch(1);
+
+      final Thread[] threads = new Thread[8];
+      for (int i = 0; i < threads.length; i++) {
+        threads[i] = new Thread(() -> takeArrival(schedule, start, earliest));
+        threads[i].start();
+      }
+      start.countDown();
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      assertTrue(earliest.get() >= before, "arrival " + (before - earliest.get()) + "ns before the start");
+      rate.restart(1000);
+    }
+  }
+
+  private static void takeArrival(ArrivalSchedule schedule, CountDownLatch start, AtomicLong earliest) {
+    try {
+      start.await();
+    } catch (InterruptedException e) {
+      return;
+    }
+    earliest.accumulateAndGet(schedule.next(), Math::min);
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import site.ycsb.measurements.OneMeasurementHdrHistogram;
+
+/**
+ * Test class for the phases of {@link Client}.
+ */
+public class TestClient {
+
+  private static Properties props() {
+    final Properties props = new Properties();
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "1000");
+    props.setProperty(Client.DO_TRANSACTIONS_PROPERTY, "true");
+    props.setProperty(Client.EXPORT_FILE_PROPERTY, "results");
+    return props;
+  }
+
+  @Test
+  public void phaseKindSetsTheTransactions() throws IOException {
+    assertEquals(Client.getPhaseProperties(props(), "load", 1).getProperty(Client.DO_TRANSACTIONS_PROPERTY),
+        "false");
+    assertEquals(Client.getPhaseProperties(props(), "run", 2).getProperty(Client.DO_TRANSACTIONS_PROPERTY),
+        "true");
+  }
+
+  @Test
+  public void phaseSettingsOverrideTheProperties() throws IOException {
+    final Properties phase = Client.getPhaseProperties(props(), "run:operationcount=5:maxexecutiontime=60", 1);
+    assertEquals(phase.getProperty(Client.OPERATION_COUNT_PROPERTY), "5");
+    assertEquals(phase.getProperty(Client.MAX_EXECUTION_TIME), "60");
+  }
+
+  @Test
+  public void phasesExportToTheirOwnFiles() throws IOException {
+    assertEquals(Client.getPhaseProperties(props(), "run", 3).getProperty(Client.EXPORT_FILE_PROPERTY),
+        "results.3");
+    assertEquals(Client.getPhaseProperties(props(), "run:exportfile=mine", 3)
+        .getProperty(Client.EXPORT_FILE_PROPERTY), "mine");
+  }
+
+  @Test
+  public void phasesLogHdrHistogramsToTheirOwnFiles() throws IOException {
+    assertEquals(Client.getPhaseProperties(props(), "run", 3)
+        .getProperty(OneMeasurementHdrHistogram.OUTPUT_PHASE_PROPERTY), "3");
+    assertNull(Client.getPhaseProperties(props(), "run:hdrhistogram.output.path=mine/", 3)
+        .getProperty(OneMeasurementHdrHistogram.OUTPUT_PHASE_PROPERTY));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void unknownPhaseKindIsRejected() throws IOException {
+    Client.getPhaseProperties(props(), "warmup", 1);
+  }
+}
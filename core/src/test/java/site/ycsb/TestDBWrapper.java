@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.Test;
+
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.exporter.TextMeasurementsExporter;
+import site.ycsb.workloads.CoreWorkload;
+
+/**
+ * Test class for {@link DBWrapper}.
+ */
+public class TestDBWrapper {
+
+  /**
+   * An AsyncDB whose reads complete when the test says so.
+   */
+  private static class PendingDB extends AsyncDB {
+    private final List<CompletableFuture<Status>> reads = new CopyOnWriteArrayList<>();
+
+    @Override
+    public CompletableFuture<Status> readAsync(String table, String key, Set<String> fields,
+                                               Map<String, ByteIterator> result) {
+      final CompletableFuture<Status> read = new CompletableFuture<>();
+      reads.add(read);
+      return read;
+    }
+
+    @Override
+    public CompletableFuture<Status> scanAsync(String table, String startkey, int recordcount, Set<String> fields,
+                                               Vector<HashMap<String, ByteIterator>> result) {
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+
+    @Override
+    public CompletableFuture<Status> updateAsync(String table, String key, Map<String, ByteIterator> values) {
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+
+    @Override
+    public CompletableFuture<Status> insertAsync(String table, String key, Map<String, ByteIterator> values) {
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+
+    @Override
+    public CompletableFuture<Status> deleteAsync(String table, String key) {
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+  }
+
+  private static DBWrapper newWrapper(DB db, String pipelineDepth) throws DBException {
+    final Properties p = new Properties();
+    p.setProperty(Client.PIPELINE_DEPTH_PROPERTY, pipelineDepth);
+    return newWrapper(db, p);
+  }
+
+  private static DBWrapper newWrapper(DB db, Properties p) throws DBException {
+    p.setProperty(BasicDB.VERBOSE, "false");
+    Measurements.setProperties(p);
+
+    final DBWrapper wrapper = new DBWrapper(db,
+        new Tracer.Builder("TestDBWrapper").conf(HTraceConfiguration.EMPTY).build());
+    wrapper.setProperties(p);
+    wrapper.init();
+
+    return wrapper;
+  }
+
+  private static String export() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (TextMeasurementsExporter exporter = new TextMeasurementsExporter(out)) {
+      Measurements.getMeasurements().exportMeasurements(exporter);
+    }
+    return out.toString("UTF-8");
+  }
+
+  @Test
+  public void pipelinedReadsReturnBeforeCompleting() throws DBException {
+    final PendingDB db = new PendingDB();
+    final DBWrapper wrapper = newWrapper(db, "2");
+
+    assertEquals(wrapper.read("usertable", "user1", null, new HashMap<>()), Status.PIPELINED);
+    assertEquals(wrapper.read("usertable", "user2", null, new HashMap<>()), Status.PIPELINED);
+    assertEquals(db.reads.size(), 2);
+    assertFalse(db.reads.get(0).isDone());
+
+    for (CompletableFuture<Status> read : db.reads) {
+      read.complete(Status.OK);
+    }
+
+    // Returns only once nothing is in flight.
+    wrapper.cleanup();
+  }
+
+  @Test(timeOut = 10000)
+  public void failingIssuesFreeTheirSlots() throws DBException, IOException {
+    final PendingDB db = new PendingDB() {
+      @Override
+      public CompletableFuture<Status> readAsync(String table, String key, Set<String> fields,
+                                                 Map<String, ByteIterator> result) {
+        if (key.equals("user1")) {
+          throw new IllegalStateException("read not issued");
+        }
+        return null;
+      }
+    };
+    final DBWrapper wrapper = newWrapper(db, "2");
+    Measurements.getMeasurements().reset();
+
+    // More failed reads than slots: each must free its slot.
+    for (int i = 0; i < 4; i++) {
+      assertEquals(wrapper.read("usertable", "user" + (i % 2 + 1), null, new HashMap<>()), Status.PIPELINED);
+    }
+    wrapper.cleanup();
+
+    final String exported = export();
+    assertTrue(exported.contains("[READ], Return=ERROR, 4"), exported);
+  }
+
+  @Test
+  public void unpipelinedReadsComplete() throws DBException {
+    final PendingDB db = new PendingDB();
+    final DBWrapper wrapper = newWrapper(db, "1");
+
+    // Goes through AsyncDB#read, which waits for the future.
+    final Thread completer = new Thread(() -> {
+        while (db.reads.isEmpty()) {
+          Thread.yield();
+        }
+        db.reads.get(0).complete(Status.NOT_FOUND);
+      });
+    completer.start();
+
+    assertEquals(wrapper.read("usertable", "user1", null, new HashMap<>()), Status.NOT_FOUND);
+  }
+
+  @Test(expectedExceptions = DBException.class)
+  public void pipeliningRejectsLatestReadsOfInserts() throws DBException {
+    final Properties p = new Properties();
+    p.setProperty(Client.PIPELINE_DEPTH_PROPERTY, "2");
+    p.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "latest");
+    p.setProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY, "0.05");
+    newWrapper(new BasicDB(), p);
+  }
+
+  @Test
+  public void cancelledOperationsFail() {
+    final CompletableFuture<Status> read = new CompletableFuture<>();
+    read.cancel(false);
+
+    assertEquals(AsyncDB.await(read), Status.ERROR);
+  }
+
+  @Test
+  public void adaptedDBCompletesImmediately() {
+    final AsyncDB db = AsyncDB.adapt(new BasicDB());
+    final CompletableFuture<Status> read = db.readAsync("usertable", "user1", null, new HashMap<>());
+
+    assertTrue(read.isDone());
+    assertTrue(AsyncDB.await(read).isOk());
+  }
+
+  @Test
+  public void batchesAreMeasuredPerBatchAndPerRecord() throws DBException, IOException {
+    final DBWrapper wrapper = newWrapper(new BasicDB(), "1");
+    Measurements.getMeasurements().reset();
+
+    final List<Map<String, ByteIterator>> results = new ArrayList<>();
+    assertTrue(wrapper.batchRead("usertable", Arrays.asList("user1", "user2", "user3"), null, results).isOk());
+    assertEquals(results.size(), 3);
+
+    final String exported = export();
+    assertTrue(exported.contains("[BATCH-READ], Operations, 1"), exported);
+    assertTrue(exported.contains("[READ], Operations, 3"), exported);
+  }
+
+  @Test
+  public void failuresAreMeasuredByStatus() throws DBException, IOException {
+    final Properties p = new Properties();
+    p.setProperty("latencytrackederrors", Status.NOT_FOUND.getName());
+    final DBWrapper wrapper = newWrapper(new BasicDB() {
+        @Override
+        public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+          return key.equals("user1") ? Status.ERROR : Status.NOT_FOUND;
+        }
+      }, p);
+    Measurements.getMeasurements().reset();
+
+    wrapper.read("usertable", "user1", null, new HashMap<>());
+    wrapper.read("usertable", "user2", null, new HashMap<>());
+    wrapper.read("usertable", "user3", null, new HashMap<>());
+
+    final String exported = export();
+    assertTrue(exported.contains("[READ-NOT_FOUND], Operations, 2"), exported);
+    assertTrue(exported.contains("[READ-FAILED], Operations, 1"), exported);
+    assertTrue(exported.contains("[READ], Return=NOT_FOUND, 2"), exported);
+    assertTrue(exported.contains("[READ], Return=ERROR, 1"), exported);
+  }
+
+  @Test
+  public void defaultBatchReportsTheFirstFailure() {
+    final DB db = new BasicDB() {
+      @Override
+      public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+        return key.equals("user1") ? Status.OK : Status.NOT_FOUND;
+      }
+    };
+
+    final List<Map<String, ByteIterator>> results = new ArrayList<>();
+    assertEquals(db.batchRead("usertable", Arrays.asList("user1", "user2", "user3"), null, results),
+        Status.NOT_FOUND);
+    assertEquals(results.size(), 3);
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link SharedDB}.
+ */
+public class TestSharedDB {
+
+  /**
+   * A DB counting its inits and cleanups and the reads in progress.
+   */
+  private static class CountingDB extends DB {
+    private int inits;
+    private int cleanups;
+    private final AtomicInteger reading = new AtomicInteger();
+    private final AtomicInteger maxReading = new AtomicInteger();
+
+    @Override
+    public void init() {
+      inits++;
+    }
+
+    @Override
+    public void cleanup() {
+      cleanups++;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      final int now = reading.incrementAndGet();
+      maxReading.accumulateAndGet(now, Math::max);
+      Thread.yield();
+      reading.decrementAndGet();
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+
+  @Test
+  public void firstInitAndLastCleanupReachTheDB() throws DBException {
+    final CountingDB db = new CountingDB();
+    final SharedDB shared = new SharedDB(db);
+
+    shared.init();
+    shared.init();
+    assertEquals(db.inits, 1);
+
+    shared.cleanup();
+    assertEquals(db.cleanups, 0);
+    shared.cleanup();
+    assertEquals(db.cleanups, 1);
+  }
+
+  @Test
+  public void operationsAreSerialized() throws InterruptedException {
+    final CountingDB db = new CountingDB();
+    final SharedDB shared = new SharedDB(db);
+    final CountDownLatch start = new CountDownLatch(1);
+
+    final Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int j = 0; j < 1000; j++) {
+            shared.read("table", "key", null, new HashMap<String, ByteIterator>());
+          }
+        });
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(db.maxReading.get(), 1);
+  }
+
+  @Test
+  public void virtualThreadModeRunsClients() throws InterruptedException {
+    // Virtual threads where the JVM has them, platform threads otherwise.
+    final Properties props = new Properties();
+    props.setProperty(Client.THREAD_MODE_PROPERTY, "virtual");
+    final AtomicInteger runs = new AtomicInteger();
+
+    final Thread thread = Client.getThreadFactory(props).newThread(runs::incrementAndGet);
+    thread.start();
+    thread.join();
+
+    assertEquals(runs.get(), 1);
+  }
+}
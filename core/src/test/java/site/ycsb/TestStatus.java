@@ -30,6 +30,7 @@ public class TestStatus {
   public void testAcceptableStatus() {
     assertTrue(Status.OK.isOk());
     assertTrue(Status.BATCHED_OK.isOk());
+    assertTrue(Status.PIPELINED.isOk());
     assertFalse(Status.BAD_REQUEST.isOk());
     assertFalse(Status.ERROR.isOk());
     assertFalse(Status.FORBIDDEN.isOk());
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link TargetProfile}.
+ */
+public class TestTargetProfile {
+  private static final double DELTA = 1e-6;
+
+  @Test
+  public void stepsAndRamps() throws IOException {
+    final TargetProfile profile = TargetProfile.parse("0s:10000,60s:50000,2m:ramp:200000");
+    assertEquals(profile.rateAt(0), 10000, DELTA);
+    assertEquals(profile.rateAt(59.5), 10000, DELTA);
+    assertEquals(profile.rateAt(60), 50000, DELTA);
+    assertEquals(profile.rateAt(90), 125000, DELTA);
+    assertEquals(profile.rateAt(120), 200000, DELTA);
+    assertEquals(profile.rateAt(3600), 200000, DELTA);
+  }
+
+  @Test
+  public void sine() throws IOException {
+    final TargetProfile profile = TargetProfile.parse("10:1000,20:sine:500:40");
+    assertEquals(profile.rateAt(5), 1000, DELTA);
+    assertEquals(profile.rateAt(20), 1000, DELTA);
+    assertEquals(profile.rateAt(30), 1500, DELTA);
+    assertEquals(profile.rateAt(50), 500, DELTA);
+  }
+
+  @Test
+  public void zeroRateSegment() throws IOException {
+    final TargetProfile profile = TargetProfile.parse("0:1000,10:0,20:1000,30:sine:2000:40");
+    assertEquals(profile.rateAt(15), 0, DELTA);
+    assertEquals(profile.rateAt(25), 1000, DELTA);
+
+    // The sine dips below 0, which is clamped to 0.
+    assertEquals(profile.rateAt(60), 0, DELTA);
+  }
+
+  @Test
+  public void perSecondRatesFromCsv() throws IOException {
+    final File file = File.createTempFile("profile", ".csv");
+    file.deleteOnExit();
+    try (FileWriter writer = new FileWriter(file)) {
+      writer.write("# second,rate\n0,100\n1,200\n\n2,300\n");
+    }
+
+    final TargetProfile profile = TargetProfile.parse(file.getPath());
+    assertEquals(profile.rateAt(0.5), 100, DELTA);
+    assertEquals(profile.rateAt(1), 200, DELTA);
+    assertEquals(profile.rateAt(2.9), 300, DELTA);
+    assertEquals(profile.rateAt(10), 300, DELTA);
+  }
+
+  @Test
+  public void profileStartsWithTheRun() throws IOException, InterruptedException {
+    final TargetRate rate = new TargetRate(TargetProfile.parse("0:100,0.2:200"));
+
+    // Time spent before the start, as initializing the DBs, does not count.
+    Thread.sleep(300);
+    rate.start();
+    assertEquals(rate.get(), 100, DELTA);
+    assertEquals(rate.getEpoch(), 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void malformedPoint() throws IOException {
+    TargetProfile.parse("0s:1000,60s:jump:2000");
+  }
+}
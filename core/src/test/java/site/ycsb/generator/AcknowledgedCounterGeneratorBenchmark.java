@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb.generator;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares the throughput of generating and acknowledging values with
+ * {@link AcknowledgedCounterGenerator} and with the locking generator it
+ * replaced. Run by hand, as it measures wall-clock time and is meant for
+ * machines with many CPUs:
+ *
+ * <pre>
+ * java -cp core/target/classes:core/target/test-classes \
+ *     site.ycsb.generator.AcknowledgedCounterGeneratorBenchmark [THREADS...]
+ * </pre>
+ */
+public final class AcknowledgedCounterGeneratorBenchmark {
+  private static final int TOTAL = 128 * 16384;
+  private static final int RUNS = 3;
+
+  private AcknowledgedCounterGeneratorBenchmark() {
+    // not used
+  }
+
+  /**
+   * The generator as it was before acknowledgments became lock-free: a lock
+   * around a boolean per pending id, and one shared counter handing out boxed
+   * values.
+   */
+  private static final class LockingGenerator {
+    private static final int WINDOW_SIZE = Integer.rotateLeft(1, 20);
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+    private final AtomicLong counter = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] window = new boolean[WINDOW_SIZE];
+    private volatile long limit = -1;
+
+    Long nextValue() {
+      return counter.getAndIncrement();
+    }
+
+    void acknowledge(long value) {
+      final int currentSlot = (int) (value & WINDOW_MASK);
+      if (window[currentSlot]) {
+        throw new RuntimeException("Too many unacknowledged insertion keys.");
+      }
+      window[currentSlot] = true;
+      if (lock.tryLock()) {
+        try {
+          long beforeFirstSlot = (limit & WINDOW_MASK);
+          long index;
+          for (index = limit + 1; index != beforeFirstSlot; ++index) {
+            int slot = (int) (index & WINDOW_MASK);
+            if (!window[slot]) {
+              break;
+            }
+            window[slot] = false;
+          }
+          limit = index - 1;
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  /**
+   * Print, for each thread count, the best of three runs of the locking
+   * generator, the lock-free generator, and the lock-free generator taking
+   * values in blocks of 64. The locking generator's threads may stop on
+   * spurious "Too many unacknowledged insertion keys" errors, as its window
+   * is read without the lock; its throughput then only counts the work done
+   * before they stopped.
+   *
+   * @param args the thread counts, by default 1, 8, 32 and 128.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int[] threadCounts = {1, 8, 32, 128};
+    if (args.length > 0) {
+      threadCounts = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        threadCounts[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    // warm up the JIT
+    run(8);
+
+    System.out.println("threads, locking ops/sec, locking threads stopped, lock-free ops/sec, "
+        + "lock-free blocks of 64 ops/sec");
+    for (int threadCount : threadCounts) {
+      final double[] result = run(threadCount);
+      System.out.printf("%d, %.0f, %.0f, %.0f, %.0f%n", threadCount, result[0], result[1], result[2], result[3]);
+    }
+  }
+
+  /**
+   * @return the best throughputs of the three generators, and the number of
+   *         the locking generator's threads that stopped.
+   */
+  private static double[] run(int threadCount) throws InterruptedException {
+    final int perThread = TOTAL / threadCount;
+    double locking = 0;
+    double lockingStopped = 0;
+    double lockFree = 0;
+    double blocks = 0;
+    for (int run = 0; run < RUNS; run++) {
+      final LockingGenerator old = new LockingGenerator();
+      final double[] oldResult = throughput(threadCount, perThread, () -> old.acknowledge(old.nextValue()));
+      locking = Math.max(locking, oldResult[0]);
+      lockingStopped += oldResult[1];
+
+      final AcknowledgedCounterGenerator single = new AcknowledgedCounterGenerator(0);
+      lockFree = Math.max(lockFree,
+          throughput(threadCount, perThread, () -> single.acknowledge(single.nextValue()))[0]);
+
+      final AcknowledgedCounterGenerator blocked = new AcknowledgedCounterGenerator(0, 64);
+      blocks = Math.max(blocks,
+          throughput(threadCount, perThread, () -> blocked.acknowledge(blocked.nextValue()))[0]);
+    }
+    return new double[] {locking, lockingStopped, lockFree, blocks};
+  }
+
+  /**
+   * Run an operation the given number of times, split over threads started
+   * together. A thread stops at the first exception its operation throws.
+   *
+   * @return the operations completed per second, and the number of threads
+   *         that stopped.
+   */
+  private static double[] throughput(int threadCount, int perThread, Runnable operation)
+      throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicLong completed = new AtomicLong();
+    final AtomicLong stopped = new AtomicLong();
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread(() -> repeat(start, perThread, operation, completed, stopped));
+      threads[i].start();
+    }
+    final long st = System.nanoTime();
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return new double[] {completed.get() * 1e9 / (System.nanoTime() - st), stopped.get()};
+  }
+
+  private static void repeat(CountDownLatch start, int times, Runnable operation, AtomicLong completed,
+                             AtomicLong stopped) {
+    try {
+      start.await();
+    } catch (InterruptedException e) {
+      return;
+    }
+    int i = 0;
+    try {
+      for (; i < times; i++) {
+        operation.run();
+      }
+    } catch (RuntimeException e) {
+      stopped.incrementAndGet();
+    } finally {
+      completed.addAndGet(i);
+    }
+  }
+}
@@ -16,6 +16,8 @@
  */
 package site.ycsb.generator;
 
+import static org.testng.Assert.assertEquals;
+
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -58,4 +60,52 @@ public class AcknowledgedCounterGeneratorTest {
     }
 
   }
+
+  /**
+   * Test that the limit stops at the first unacknowledged value.
+   */
+  @Test
+  public void testLimitStopsAtGap() {
+    AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(10);
+    for (int i = 0; i < 200; i++) {
+      generator.nextValue();
+    }
+
+    for (long value = 10; value < 210; value++) {
+      if (value != 100) {
+        generator.acknowledge(value);
+      }
+    }
+    assertEquals(generator.lastValue().longValue(), 99);
+
+    generator.acknowledge(100);
+    assertEquals(generator.lastValue().longValue(), 209);
+  }
+
+  /**
+   * Test that values taken in blocks and acknowledged by many threads at once
+   * all reach the limit.
+   */
+  @Test
+  public void testConcurrentBlocks() throws InterruptedException {
+    final int threadCount = 16;
+    final int perThread = 64 * 1500;
+    final AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(0, 64);
+
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread(() -> {
+          for (int j = 0; j < perThread; j++) {
+            generator.acknowledge(generator.nextValue());
+          }
+        });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // every thread's last block is used up, so no value is missing
+    assertEquals(generator.lastValue().longValue(), (long) threadCount * perThread - 1);
+  }
 }
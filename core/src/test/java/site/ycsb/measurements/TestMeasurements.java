@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2022 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import site.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+/**
+ * Test class for {@link Measurements}.
+ */
+public class TestMeasurements {
+
+  private static String export(Measurements measurements) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (TextMeasurementsExporter exporter = new TextMeasurementsExporter(out)) {
+      measurements.exportMeasurements(exporter);
+    }
+    return out.toString("UTF-8");
+  }
+
+  @Test
+  public void warmupMeasurementsAreSeparate() throws IOException {
+    final Measurements measurements = new Measurements(new Properties());
+    measurements.setWarmup(true);
+    measurements.measure("READ", 1000);
+    measurements.measure("READ", 1000);
+    measurements.setWarmup(false);
+    measurements.measure("READ", 10);
+
+    final String exported = export(measurements);
+    assertTrue(exported.contains("[WARMUP-READ], Operations, 2"), exported);
+    assertTrue(exported.contains("[READ], Operations, 1"), exported);
+    assertTrue(exported.contains("[READ], MaxLatency(us), 10"), exported);
+  }
+
+  @Test
+  public void windowsHoldTheLatenciesSinceTheLastTake() {
+    final Measurements measurements = new Measurements(new Properties());
+    measurements.measureWindow(10, 20);
+    assertEquals(measurements.takeWindow().getTotalCount(), 0);
+
+    measurements.measureWindow(10, 20);
+    measurements.measureWindow(30, 40);
+    assertEquals(measurements.takeWindow().getTotalCount(), 2);
+    assertEquals(measurements.takeWindow().getTotalCount(), 0);
+  }
+
+  @Test
+  public void resetStartsAfresh() throws IOException {
+    final Measurements measurements = new Measurements(new Properties());
+    measurements.setWarmup(true);
+    measurements.measure("READ", 1000);
+    measurements.reset();
+    measurements.measure("UPDATE", 10);
+
+    final String exported = export(measurements);
+    assertFalse(exported.contains("READ"), exported);
+    assertTrue(exported.contains("[UPDATE], Operations, 1"), exported);
+  }
+
+  @Test
+  public void operationHandlesFollowWarmupAndReset() throws IOException {
+    final Measurements measurements = new Measurements(new Properties());
+    final Measurements.Operation read = measurements.getOperation("READ");
+    measurements.setWarmup(true);
+    read.measure(1000, 1000);
+    measurements.setWarmup(false);
+    read.measure(10, 10);
+    read.measure(10, 10);
+
+    String exported = export(measurements);
+    assertTrue(exported.contains("[WARMUP-READ], Operations, 1"), exported);
+    assertTrue(exported.contains("[READ], Operations, 2"), exported);
+
+    measurements.reset();
+    read.measure(10, 10);
+    exported = export(measurements);
+    assertFalse(exported.contains("WARMUP-READ"), exported);
+    assertTrue(exported.contains("[READ], Operations, 1"), exported);
+  }
+
+  @Test
+  public void threadsMeasureIntoOneHdrHistogram() throws IOException, InterruptedException {
+    threadsMeasureIntoOne("hdrhistogram");
+  }
+
+  @Test
+  public void threadsMeasureIntoOneHistogram() throws IOException, InterruptedException {
+    threadsMeasureIntoOne("histogram");
+  }
+
+  private static void threadsMeasureIntoOne(String type) throws IOException, InterruptedException {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, type);
+    final Measurements measurements = new Measurements(props);
+    final Measurements.Operation read = measurements.getOperation("READ");
+
+    // More threads than stripes, so that threads share stripes.
+    final Thread[] threads = new Thread[64];
+    for (int i = 0; i < threads.length; i++) {
+      final int latency = (i + 1) * 1000;
+      threads[i] = new Thread(() -> measureMany(read, latency));
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    final String exported = export(measurements);
+    assertTrue(exported.contains("[READ], Operations, 64000"), exported);
+    assertTrue(exported.contains("[READ], MinLatency(us), 1000"), exported);
+  }
+
+  private static void measureMany(Measurements.Operation operation, int latency) {
+    for (int i = 0; i < 1000; i++) {
+      operation.measure(latency, latency);
+    }
+  }
+}
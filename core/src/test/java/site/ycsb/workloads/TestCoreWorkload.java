@@ -16,12 +16,22 @@
  */
 package site.ycsb.workloads;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import org.testng.annotations.Test;
 
+import site.ycsb.BasicDB;
+import site.ycsb.ByteIterator;
+import site.ycsb.Status;
+import site.ycsb.WorkloadException;
 import site.ycsb.generator.DiscreteGenerator;
 
 public class TestCoreWorkload {
@@ -63,8 +73,120 @@ public class TestCoreWorkload {
     }
   }
   
+  @Test
+  public void createOperationChooserSync() {
+    final Properties p = new Properties();
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.SYNC_PROPORTION_PROPERTY, "1.0");
+    final DiscreteGenerator generator = CoreWorkload.createOperationGenerator(p);
+
+    for (int i = 0; i < 10; ++i) {
+      assertEquals(generator.nextString(), "SYNC");
+    }
+  }
+
+  @Test
+  public void createOperationChooserPrefixDelete() {
+    final Properties p = new Properties();
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.PREFIX_DELETE_PROPORTION_PROPERTY, "1.0");
+    final DiscreteGenerator generator = CoreWorkload.createOperationGenerator(p);
+
+    for (int i = 0; i < 10; ++i) {
+      assertEquals(generator.nextString(), "PREFIXDELETE");
+    }
+  }
+
   @Test (expectedExceptions = IllegalArgumentException.class)
   public void createOperationChooserNullProperties() {
     CoreWorkload.createOperationGenerator(null);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void keysBeyondIntegerRange() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "5000000000");
+    p.setProperty(CoreWorkload.INSERT_START_PROPERTY, "4000000000");
+    p.setProperty(CoreWorkload.INSERT_COUNT_PROPERTY, "2");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    p.setProperty(CoreWorkload.ZERO_PADDING_PROPERTY, "1");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+
+    final List<String> keys = new ArrayList<>();
+    final BasicDB db = new BasicDB() {
+      @Override
+      public Status insert(String table, String key, Map<String, ByteIterator> values) {
+        keys.add(key);
+        return Status.OK;
+      }
+    };
+    workload.doInsert(db, null);
+    workload.doInsert(db, null);
+
+    assertEquals(keys.get(0), "user4000000000");
+    assertEquals(keys.get(1), "user4000000001");
+    assertTrue(workload.nextKeynum() >= 4000000000L);
+  }
+
+  @Test
+  public void threadsLoadTheirOwnRanges() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "10");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+
+    final List<String> keys = new ArrayList<>();
+    final BasicDB db = new BasicDB() {
+      @Override
+      public Status insert(String table, String key, Map<String, ByteIterator> values) {
+        keys.add(key);
+        return Status.OK;
+      }
+    };
+    // thread 0 of 3 loads 4 records, and threads 1 and 2 load 3 each
+    final int[] shares = {4, 3, 3};
+    for (int thread = 0; thread < shares.length; thread++) {
+      final Object state = workload.initThread(p, thread, shares.length);
+      for (int i = 0; i < shares[thread]; i++) {
+        assertTrue(workload.doInsert(db, state));
+      }
+      assertEquals(workload.doInsert(db, state), false);
+    }
+
+    final Set<String> expected = new HashSet<>();
+    for (int i = 0; i < 10; i++) {
+      expected.add("user" + i);
+    }
+    assertEquals(keys.size(), 10);
+    assertEquals(new HashSet<>(keys), expected);
+    assertEquals(keys.get(4), "user4");
+  }
+
+  @Test
+  public void unboundedLoadInsertsBatches() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "0");
+    p.setProperty(CoreWorkload.WRITE_BATCH_SIZE_PROPERTY, "2");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+
+    final List<String> keys = new ArrayList<>();
+    final BasicDB db = new BasicDB() {
+      @Override
+      public Status batchInsert(String table, List<String> batchKeys, List<Map<String, ByteIterator>> values) {
+        keys.addAll(batchKeys);
+        return Status.OK;
+      }
+    };
+    // with no count to share out, the threads take keys from the shared sequence until stopped
+    final Object state = workload.initThread(p, 0, 1);
+    assertTrue(workload.doInsert(db, state));
+    assertTrue(workload.doInsert(db, state));
+    assertEquals(keys.size(), 4);
+  }
+}
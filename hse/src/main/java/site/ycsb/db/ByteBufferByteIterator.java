@@ -0,0 +1,77 @@
+/**
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright (C) 2022 Micron Technology, Inc.
+ */
+
+package site.ycsb.db;
+
+import java.nio.ByteBuffer;
+
+import site.ycsb.ByteIterator;
+
+/**
+ * A re-usable ByteIterator that is a view over a region of a ByteBuffer.
+ *
+ * The view does not own its bytes, so it is only valid until the backing
+ * buffer is next written. Instances are pooled per client thread and re-bound
+ * to a new region for every field of every result.
+ */
+final class ByteBufferByteIterator extends ByteIterator {
+  private ByteBuffer source;
+  private ByteBuffer view;
+  private int start;
+
+  /**
+   * Point this iterator at len bytes of backing starting at off.
+   *
+   * @return this iterator
+   */
+  ByteBufferByteIterator bind(final ByteBuffer backing, final int off, final int len) {
+    if (source != backing) {
+      source = backing;
+      view = backing.duplicate();
+    }
+
+    start = off;
+    view.limit(off + len).position(off);
+
+    return this;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return view.hasRemaining();
+  }
+
+  @Override
+  public byte nextByte() {
+    return view.get();
+  }
+
+  @Override
+  public int nextBuf(final byte[] buf, final int bufOff) {
+    final int len = Math.min(view.remaining(), buf.length - bufOff);
+    view.get(buf, bufOff, len);
+
+    return bufOff + len;
+  }
+
+  @Override
+  public long bytesLeft() {
+    return view.remaining();
+  }
+
+  @Override
+  public void reset() {
+    view.position(start);
+  }
+
+  @Override
+  public byte[] toArray() {
+    final byte[] bytes = new byte[view.remaining()];
+    view.get(bytes);
+
+    return bytes;
+  }
+}
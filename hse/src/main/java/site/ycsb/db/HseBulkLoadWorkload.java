@@ -0,0 +1,91 @@
+/**
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright (C) 2022 Micron Technology, Inc.
+ */
+
+package site.ycsb.db;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import site.ycsb.DB;
+import site.ycsb.WorkloadException;
+import site.ycsb.workloads.CoreWorkload;
+
+/**
+ * CoreWorkload with a bulk load phase for HSE.
+ *
+ * As in CoreWorkload's load, each thread loads its own contiguous range of
+ * key numbers, sized exactly as Client sizes the thread's share of the load.
+ * The keys of every hse.bulk.batch key numbers are built, sorted and inserted
+ * in key order, which with insertorder=ordered makes each thread's whole load
+ * sorted. The set of records is the same as CoreWorkload's load, so the run
+ * phase is unchanged.
+ *
+ * HseClient recognizes this workload during a load: it groups puts into
+ * transactions of hse.bulk.batch puts and compacts the KVDBs at the end.
+ */
+public class HseBulkLoadWorkload extends CoreWorkload {
+  public static final String BATCH_PROPERTY = "hse.bulk.batch";
+  public static final String BATCH_PROPERTY_DEFAULT = "10000";
+
+  private int batchSize;
+
+  /**
+   * A thread's key range and its current sorted batch.
+   */
+  private static final class BulkState {
+    private long next;
+    private final long end;
+    private final String[] batch;
+    private int pos;
+    private int len;
+
+    BulkState(final long start, final long end, final int batchSize) {
+      this.next = start;
+      this.end = end;
+      this.batch = new String[batchSize];
+    }
+  }
+
+  @Override
+  public void init(final Properties p) throws WorkloadException {
+    super.init(p);
+
+    batchSize = Integer.parseInt(p.getProperty(BATCH_PROPERTY, BATCH_PROPERTY_DEFAULT));
+    if (batchSize < 1) {
+      throw new WorkloadException(BATCH_PROPERTY + " must be positive");
+    }
+  }
+
+  @Override
+  public Object initThread(final Properties p, final int mythreadid, final int threadcount)
+      throws WorkloadException {
+    return new BulkState(loadRangeStart(mythreadid, threadcount), loadRangeStart(mythreadid + 1, threadcount),
+        batchSize);
+  }
+
+  @Override
+  public boolean doInsert(final DB db, final Object threadstate) {
+    final BulkState state = (BulkState) threadstate;
+
+    if (state.pos == state.len) {
+      final int len = (int) Math.min(state.batch.length, state.end - state.next);
+      if (len == 0) {
+        return false;
+      }
+
+      for (int i = 0; i < len; i++) {
+        state.batch[i] = buildKeyName(state.next + i);
+      }
+      Arrays.sort(state.batch, 0, len);
+
+      state.next += len;
+      state.pos = 0;
+      state.len = len;
+    }
+
+    return insertRecord(db, state.batch[state.pos++]);
+  }
+}
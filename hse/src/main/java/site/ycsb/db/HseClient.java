@@ -8,7 +8,6 @@
 
 package site.ycsb.db;
 
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -16,6 +15,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,11 +23,13 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import io.github.hse_project.hse.Hse;
 import io.github.hse_project.hse.HseException;
 import io.github.hse_project.hse.Kvdb;
+import io.github.hse_project.hse.KvdbTransaction;
 import io.github.hse_project.hse.Kvs;
 import io.github.hse_project.hse.KvsCursor;
 import io.github.hse_project.hse.Limits;
@@ -41,9 +43,11 @@ import org.slf4j.LoggerFactory;
 import jnr.constants.platform.Errno;
 import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
+import site.ycsb.Client;
 import site.ycsb.DB;
 import site.ycsb.DBException;
 import site.ycsb.Status;
+import site.ycsb.measurements.Measurements;
 import site.ycsb.workloads.CoreWorkload;
 
 /**
@@ -53,36 +57,200 @@ public class HseClient extends DB {
   private static final Logger LOGGER = LoggerFactory.getLogger(HseClient.class);
   private static final AtomicInteger REFERENCES = new AtomicInteger(0);
 
+  // Phases: the instances that have ended the current phase
+  private static final AtomicInteger PHASE_ENDS = new AtomicInteger(0);
+
+  private static final int COPY_BUF_SIZE = 4096;
+  private static final int STASH_BUF_RECORDS = 16;
+
+  private static final String TXN_COMMIT = "TXN-COMMIT";
+  private static final String TXN_ABORT = "TXN-ABORT";
+  private static final String CURSOR_CREATE = "CURSOR-CREATE";
+  private static final String CURSOR_UPDATE = "CURSOR-UPDATE";
+  private static final String CURSOR_SEEK = "CURSOR-SEEK";
+  private static final String COMPACT = "COMPACT";
+  private static final String READ_TOMBSTONED = "READ-TOMBSTONED";
+  private static final String SCAN_TOMBSTONED = "SCAN-TOMBSTONED";
+
+  private static final long COMPACT_POLL_MS = 100;
+
+  // Key prefixes removed by prefixDelete, whose tombstones reads and scans
+  // starting under them have to get past, sorted and replaced as a whole so
+  // that lookups take no lock
+  private static volatile String[] tombstonedPrefixes = new String[0];
+
+  // Separates the record key from the field name in the field layout
+  private static final byte FIELD_SEPARATOR = 0;
+
+  // Separates the record key from the chunk number in a chunked record
+  private static final byte CHUNK_SEPARATOR = 0;
+
+  // Size of every chunk of a chunked record but the last
+  private static final int CHUNK_LEN = Limits.KVS_VALUE_LEN_MAX;
+
   private static int valueBufSize;
-  private static Kvdb kvdb;
-  private static Kvs kvs;
-  private static Path kvdbHome;
+  private static Shard[] shards;
+  private static boolean rangeRouting;
+  private static String[] shardSplits;
   private static String kvsName;
+  private static Kvdb[] kvdbs;
+  private static HseStatsSampler stats;
+  private static int syncOpsPerSync;
+  private static HseSyncer syncer;
+  private static boolean compactOnCleanup;
+  private static boolean useViews;
+  private static boolean fieldLayout;
+  private static boolean chunking;
+  private static int kvsPrefixLen;
+  private static boolean transactions;
+  private static int txnOpsPerCommit;
+  private static boolean reuseCursor;
+  private static int cursorStaleOps;
+  private static long cursorStaleNs;
+  private static String[] fieldNames;
+  private static byte[] fieldNamePrefix;
 
   // Re-use the same buffer for all keys
   private ByteBuffer keyBuffer;
 
-  // Re-use the same buffer for all values
+  // Re-use the same buffer for all values, grown to the largest record seen
   private ByteBuffer valueBuffer;
 
+  // Chunking: reassembles chunked records read from the KVS
+  private ByteBuffer recordBuffer;
+
+  // Staging area for draining ByteIterators into valueBuffer
+  private final byte[] copyBuffer = new byte[COPY_BUF_SIZE];
+
+  // Re-use the same buffer for all record prefix filters
+  private ByteBuffer prefixBuffer;
+
+  // Values read by the current operation, kept for the lifetime of their views
+  private ByteBuffer stashBuffer;
+  private ByteBuffer stashReader;
+
+  // Result views handed out by the current operation
+  private final ViewPool readViews = new ViewPool();
+  private final ViewPool stashViews = new ViewPool();
+
+  private final Measurements measurements = Measurements.getMeasurements();
+
+  // Transaction mode: the thread's re-usable transaction on each shard and
+  // their progress
+  private KvdbTransaction[] txns;
+  private boolean[] txnActive;
+  private int txnOps;
+  private String rmwKey;
+
+  // hse.sync=ops: writes since this thread's last sync
+  private int syncOps;
+
+  // Cursor on each shard reused by every scan, and how stale its view is
+  private KvsCursor[] scanCursors;
+  private int[] scanCursorScans;
+  private long[] scanCursorUpdateNs;
+
+  // Merges the cursors of the shards spanned by a scan
+  private MergedKvsCursor scanMerger;
+
+  // Record key of the most recent field seen by a field layout scan
+  private final byte[] scanRecordKey = new byte[Limits.KVS_KEY_LEN_MAX];
+  private int scanRecordKeyLen;
+
+  /**
+   * One KVDB, usually on its own storage device, holding a share of the
+   * records.
+   */
+  private static final class Shard {
+    private final Kvdb kvdb;
+    private final Kvs kvs;
+
+    // Per-shard operation measurement, used when there is more than one shard
+    private final String opName;
+
+    Shard(final int index, final Kvdb kvdb, final Kvs kvs) {
+      this.kvdb = kvdb;
+      this.kvs = kvs;
+      this.opName = "SHARD-" + index;
+    }
+  }
+
+  /**
+   * Pool of re-usable value views over a single backing buffer.
+   */
+  private static final class ViewPool {
+    private final ArrayList<ByteBufferByteIterator> views = new ArrayList<>();
+    private int used;
+
+    void release() {
+      used = 0;
+    }
+
+    ByteBufferByteIterator next() {
+      if (used == views.size()) {
+        views.add(new ByteBufferByteIterator());
+      }
+
+      return views.get(used++);
+    }
+  }
+
+  /**
+   * Decode a field name, returning the shared String for names in the known
+   * fieldnameprefix0..N set so that reads do not allocate one per field.
+   */
+  private static String deserializeFieldName(final ByteBuffer buf, final int len) {
+    final int pos = buf.position();
+    final int digits = len - fieldNamePrefix.length;
+
+    if (digits > 0 && digits < 10) {
+      int i = 0;
+      while (i < fieldNamePrefix.length && buf.get(pos + i) == fieldNamePrefix[i]) {
+        i++;
+      }
+
+      int index = i == fieldNamePrefix.length ? 0 : -1;
+      for (; index >= 0 && i < len; i++) {
+        final int digit = buf.get(pos + i) - '0';
+        index = digit >= 0 && digit <= 9 ? index * 10 + digit : -1;
+      }
+
+      if (index >= 0 && index < fieldNames.length && fieldNames[index].length() == len) {
+        buf.position(pos + len);
+        return fieldNames[index];
+      }
+    }
+
+    final byte[] bytes = new byte[len];
+    buf.get(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
   /**
    * Adapted from site.ycsb.db.rocksdb.RocksDBClient.
+   *
+   * When a view pool is given, values are views over the given buffer rather
+   * than copies of it.
    */
   private Map<String, ByteIterator> deserializeValues(final ByteBuffer values,
-      final Set<String> fields, final Map<String, ByteIterator> result) {
+      final Set<String> fields, final Map<String, ByteIterator> result, final ViewPool pool) {
     while (values.hasRemaining()) {
       final int keyLen = values.getInt();
-      final byte[] keyBytes = new byte[keyLen];
-      values.get(keyBytes);
-      final String key = new String(keyBytes);
+      final String key = deserializeFieldName(values, keyLen);
 
       final int valueLen = values.getInt();
 
       if (fields == null || fields.contains(key)) {
-        final byte[] valueBytes = new byte[valueLen];
-        values.get(valueBytes);
+        if (pool != null) {
+          result.put(key, pool.next().bind(values, values.position(), valueLen));
+          values.position(values.position() + valueLen);
+        } else {
+          final byte[] valueBytes = new byte[valueLen];
+          values.get(valueBytes);
 
-        result.put(key, new ByteArrayByteIterator(valueBytes));
+          result.put(key, new ByteArrayByteIterator(valueBytes));
+        }
       } else {
         values.position(values.position() + valueLen);
       }
@@ -91,13 +259,64 @@ public class HseClient extends DB {
     return result;
   }
 
+  /**
+   * Forget everything stashed by the previous operation.
+   */
+  private void resetStash() {
+    stashViews.release();
+    if (stashBuffer != null) {
+      stashBuffer.clear();
+    }
+  }
+
+  /**
+   * Append the contents of a value buffer to the stash buffer so that views
+   * over it survive reading the next value, growing the stash buffer if
+   * needed.
+   *
+   * @return a buffer positioned over the stashed bytes
+   */
+  private ByteBuffer stash(final ByteBuffer value) {
+    final int len = value.remaining();
+
+    if (stashBuffer == null || stashBuffer.remaining() < len) {
+      final int capacity = stashBuffer == null ? valueBufSize * STASH_BUF_RECORDS
+          : Math.max(stashBuffer.capacity() * 2, len);
+
+      // Views handed out earlier in this operation keep the old buffer alive.
+      stashBuffer = ByteBuffer.allocateDirect(Math.max(capacity, len));
+      stashReader = stashBuffer.duplicate();
+    }
+
+    final int off = stashBuffer.position();
+    stashBuffer.put(value);
+    stashReader.limit(off + len).position(off);
+
+    return stashReader;
+  }
+
+  /**
+   * Wrap a single field value held in valueBuffer, as a view if enabled.
+   */
+  private ByteIterator fieldValue() {
+    if (useViews) {
+      final ByteBuffer stashed = stash(valueBuffer);
+      return stashViews.next().bind(stashed, stashed.position(), stashed.remaining());
+    }
+
+    final byte[] valueBytes = new byte[valueBuffer.remaining()];
+    valueBuffer.get(valueBytes);
+
+    return new ByteArrayByteIterator(valueBytes);
+  }
+
   /**
    * Given a CSV-formatted nullable string, convert to list of key=value params.
    *
    * @param str CSV-formatted nullable string
    * @return List of key=value parameters
    */
-  private static List<String> paramsToList(final String str) {
+  static List<String> paramsToList(final String str) {
     final ArrayList<String> params = new ArrayList<>();
 
     if (str == null) {
@@ -116,31 +335,163 @@ public class HseClient extends DB {
   }
 
   /**
-   * Borrowed from site.ycsb.db.rocksdb.RocksDBClient.
+   * Encode a string into a buffer as UTF-8 without allocating for the common
+   * all-ASCII case (record keys and field names).
    */
-  private byte[] serializeValues(final Map<String, ByteIterator> values) throws IOException {
-    try (final ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-      final ByteBuffer buf = ByteBuffer.allocate(4);
+  private static void putString(final ByteBuffer buf, final String str) {
+    final int len = str.length();
 
-      for (final Map.Entry<String, ByteIterator> value : values.entrySet()) {
-        final byte[] keyBytes = value.getKey().getBytes(StandardCharsets.UTF_8);
-        final byte[] valueBytes = value.getValue().toArray();
+    for (int i = 0; i < len; i++) {
+      final char c = str.charAt(i);
+      if (c >= 0x80) {
+        buf.put(str.substring(i).getBytes(StandardCharsets.UTF_8));
+        return;
+      }
 
-        buf.putInt(keyBytes.length);
-        baos.write(buf.array());
-        baos.write(keyBytes);
+      buf.put((byte) c);
+    }
+  }
 
-        buf.clear();
+  /**
+   * Encode a record key into keyBuffer, leaving it ready to be handed to HSE.
+   */
+  private ByteBuffer serializeKey(final String key) {
+    keyBuffer.clear();
+    putString(keyBuffer, key);
+    keyBuffer.flip();
 
-        buf.putInt(valueBytes.length);
-        baos.write(buf.array());
-        baos.write(valueBytes);
+    return keyBuffer;
+  }
 
-        buf.clear();
-      }
+  /**
+   * Encode the key of a single field in the field layout into keyBuffer,
+   * leaving it ready to be handed to HSE.
+   */
+  private ByteBuffer serializeFieldKey(final String key, final String field) {
+    keyBuffer.clear();
+    putString(keyBuffer, key);
+    keyBuffer.put(FIELD_SEPARATOR);
+    putString(keyBuffer, field);
+    keyBuffer.flip();
+
+    return keyBuffer;
+  }
+
+  /**
+   * Encode the prefix shared by all fields of a record in the field layout
+   * into prefixBuffer, leaving it ready to be used as a cursor filter.
+   */
+  private ByteBuffer serializeRecordPrefix(final String key) {
+    prefixBuffer.clear();
+    putString(prefixBuffer, key);
+    prefixBuffer.put(FIELD_SEPARATOR);
+    prefixBuffer.flip();
+
+    return prefixBuffer;
+  }
+
+  /**
+   * Chunking: encode the key of a record's chunk after the first into
+   * prefixBuffer, leaving it ready to be handed to HSE. The big-endian chunk
+   * number keeps the chunks in order after the record key.
+   */
+  private ByteBuffer serializeChunkKey(final String key, final int chunk) {
+    prefixBuffer.clear();
+    putString(prefixBuffer, key);
+    prefixBuffer.put(CHUNK_SEPARATOR);
+    prefixBuffer.putInt(chunk);
+    prefixBuffer.flip();
+
+    return prefixBuffer;
+  }
+
+  /**
+   * Chunking: encode the prefix shared by the chunks of a record after the
+   * first into prefixBuffer, leaving it ready to be used as a cursor filter.
+   */
+  private ByteBuffer serializeChunkPrefix(final String key) {
+    prefixBuffer.clear();
+    putString(prefixBuffer, key);
+    prefixBuffer.put(CHUNK_SEPARATOR);
+    prefixBuffer.flip();
+
+    return prefixBuffer;
+  }
+
+  /**
+   * Make sure valueBuffer can hold len bytes, replacing it with a larger
+   * buffer if not. It is never shrunk, so it ends up the size of the largest
+   * record the thread has seen.
+   */
+  private void reserveValueBuffer(final long len) {
+    if (len > valueBuffer.capacity()) {
+      valueBuffer = ByteBuffer.allocateDirect(grownCapacity(valueBuffer.capacity(), len));
+    }
+  }
+
+  /**
+   * The capacity to grow a buffer to so that it holds len bytes: at least
+   * double, rounded to a multiple of 8192 like valueBufSize.
+   */
+  private static int grownCapacity(final int capacity, final long len) {
+    final long grown = Math.max(2L * capacity, len) + 8191 & ~8191L;
+    if (grown > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Record of " + len + " bytes is too large to buffer");
+    }
+
+    return (int) grown;
+  }
+
+  /**
+   * Encode a single field value straight into valueBuffer, leaving it ready to
+   * be handed to HSE.
+   */
+  private ByteBuffer serializeValue(final ByteIterator iter) {
+    reserveValueBuffer(iter.bytesLeft());
+    valueBuffer.clear();
+    while (iter.hasNext()) {
+      final int len = iter.nextBuf(copyBuffer, 0);
+      valueBuffer.put(copyBuffer, 0, len);
+    }
+    valueBuffer.flip();
+
+    return valueBuffer;
+  }
+
+  /**
+   * Encode fields straight into valueBuffer, leaving it ready to be handed to
+   * HSE. The layout matches site.ycsb.db.rocksdb.RocksDBClient: a sequence of
+   * (int nameLen, name, int valueLen, value) tuples.
+   */
+  private ByteBuffer serializeValues(final Map<String, ByteIterator> values) {
+    long recordLen = 0;
+    for (final Map.Entry<String, ByteIterator> value : values.entrySet()) {
+      // At most 3 UTF-8 bytes per char of the name, usually 1.
+      recordLen += 2 * Integer.BYTES + 3L * value.getKey().length() + value.getValue().bytesLeft();
+    }
 
-      return baos.toByteArray();
+    reserveValueBuffer(recordLen);
+    valueBuffer.clear();
+
+    for (final Map.Entry<String, ByteIterator> value : values.entrySet()) {
+      int lenPos = valueBuffer.position();
+      valueBuffer.position(lenPos + Integer.BYTES);
+      putString(valueBuffer, value.getKey());
+      valueBuffer.putInt(lenPos, valueBuffer.position() - lenPos - Integer.BYTES);
+
+      lenPos = valueBuffer.position();
+      valueBuffer.position(lenPos + Integer.BYTES);
+      final ByteIterator iter = value.getValue();
+      while (iter.hasNext()) {
+        final int len = iter.nextBuf(copyBuffer, 0);
+        valueBuffer.put(copyBuffer, 0, len);
+      }
+      valueBuffer.putInt(lenPos, valueBuffer.position() - lenPos - Integer.BYTES);
     }
+
+    valueBuffer.flip();
+
+    return valueBuffer;
   }
 
   @Override
@@ -165,51 +516,49 @@ public class HseClient extends DB {
           throw new DBException(e);
         }
 
-        final String home = props.getProperty("hse.kvdb.home");
-        if (home == null) {
+        final List<String> homes = paramsToList(props.getProperty("hse.kvdb.home"));
+        if (homes.isEmpty()) {
           throw new DBException("hse.kvdb.home was not specified");
         }
 
-        kvdbHome = Paths.get(home);
-
         final List<String> kvdbCParams = paramsToList(props.getProperty("hse.kvdb.cparams"));
         final List<String> kvdbRParams = paramsToList(props.getProperty("hse.kvdb.rparams"));
         final List<String> kvsCParams = paramsToList(props.getProperty("hse.kvs.cparams"));
         final List<String> kvsRParams = paramsToList(props.getProperty("hse.kvs.rparams"));
 
-        // Create KVDB unless it has already been created.
-        try {
-          Kvdb.create(kvdbHome, kvdbCParams.stream().toArray(String[]::new));
-          kvdb = Kvdb.open(kvdbHome, kvdbRParams.stream().toArray(String[]::new));
-        } catch (final HseException e) {
-          if (Errno.valueOf(e.getErrno()) == Errno.EEXIST) {
-            try {
-              kvdb = Kvdb.open(kvdbHome, kvdbRParams.stream().toArray(String[]::new));
-            } catch (final HseException other) {
-              throw new DBException(other);
-            }
-          } else {
-            throw new DBException(e);
-          }
+        initLayout(props, kvsCParams);
+
+        // The KVS is opened with or without transactions for every phase of
+        // a run, so only a bulk load run on its own turns them on by default.
+        final boolean bulkLoad = isBulkLoad(props) && props.getProperty(Client.PHASES_PROPERTY) == null;
+        transactions = Boolean.parseBoolean(props.getProperty("hse.transactions", Boolean.toString(bulkLoad)));
+        initBulkMode(props);
+
+        if (transactions && kvsRParams.stream().noneMatch(p -> p.startsWith("transactions.enabled="))) {
+          kvsRParams.add("transactions.enabled=true");
         }
 
         kvsName = props.getProperty(CoreWorkload.TABLENAME_PROPERTY,
             CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
 
-        // Create KVS unless it has already been created.
+        shards = new Shard[homes.size()];
+        for (int i = 0; i < shards.length; i++) {
+          shards[i] = openShard(i, Paths.get(homes.get(i)), kvdbCParams, kvdbRParams, kvsCParams, kvsRParams);
+        }
+
+        initRouting(props);
+
+        kvdbs = new Kvdb[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+          kvdbs[i] = shards[i].kvdb;
+        }
+
+        initSync(props);
+
         try {
-          kvdb.kvsCreate(kvsName, kvsCParams.stream().toArray(String[]::new));
-          kvs = kvdb.kvsOpen(kvsName, kvsRParams.stream().toArray(String[]::new));
-        } catch (final HseException e) {
-          if (Errno.valueOf(e.getErrno()) == Errno.EEXIST) {
-            try {
-              kvs = kvdb.kvsOpen(kvsName, kvsRParams.stream().toArray(String[]::new));
-            } catch (final HseException other) {
-              throw new DBException(other);
-            }
-          } else {
-            throw new DBException(e);
-          }
+          stats = HseStatsSampler.start(props, kvdbs);
+        } catch (final IllegalArgumentException e) {
+          throw new DBException(e);
         }
 
         final String fieldCount = props.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,
@@ -218,118 +567,1348 @@ public class HseClient extends DB {
         final String fieldLength = props.getProperty(CoreWorkload.FIELD_LENGTH_PROPERTY,
             CoreWorkload.FIELD_LENGTH_PROPERTY_DEFAULT);
 
+        final String fieldNamePrefixStr = props.getProperty(CoreWorkload.FIELD_NAME_PREFIX,
+            CoreWorkload.FIELD_NAME_PREFIX_DEFAULT);
+
+        fieldNamePrefix = fieldNamePrefixStr.getBytes(StandardCharsets.UTF_8);
+        fieldNames = new String[Integer.parseInt(fieldCount)];
+        for (int i = 0; i < fieldNames.length; i++) {
+          fieldNames[i] = fieldNamePrefixStr + i;
+        }
+
+        useViews = Boolean.parseBoolean(props.getProperty("hse.read.views", "false"));
+        if (useViews && isShared(props)) {
+          throw new DBException("hse.read.views cannot be combined with " + Client.DB_INSTANCES_PROPERTY
+              + " below the thread count");
+        }
+
+        reuseCursor = Boolean.parseBoolean(props.getProperty("hse.cursor.reuse", "false"));
+        cursorStaleOps = Integer.parseInt(props.getProperty("hse.cursor.staleness.ops", "1"));
+        cursorStaleNs = TimeUnit.MILLISECONDS.toNanos(
+            Long.parseLong(props.getProperty("hse.cursor.staleness.ms", "0")));
+
         // Round valueBufSize to a multiple of 8192 >= valueBufSize
         // REVISIT: Old hsejni code called posix_memalign() to allocate memory on the page boundary
         valueBufSize = Integer.parseInt(fieldCount) * (Integer.parseInt(fieldLength) + 20)
             + 8191 & ~8191;
+
+        // Every chunk but the last is CHUNK_LEN bytes, and the merged scan
+        // cursor buffers whole chunks.
+        if (chunking) {
+          valueBufSize = Math.max(valueBufSize, CHUNK_LEN);
+        }
       }
     }
 
     keyBuffer = ByteBuffer.allocateDirect(Limits.KVS_KEY_LEN_MAX);
     valueBuffer = ByteBuffer.allocateDirect(valueBufSize);
-  }
+    prefixBuffer = ByteBuffer.allocateDirect(Limits.KVS_KEY_LEN_MAX);
 
-  @Override
-  public void cleanup() {
-    synchronized (HseClient.class) {
-      if (REFERENCES.getAndDecrement() == 1) {
-        try {
-          kvs.close();
-        } catch (final HseException e) {
-          LOGGER.error(e.getMessage(), e);
-        }
+    if (chunking) {
+      recordBuffer = ByteBuffer.allocateDirect(2 * valueBufSize);
+    }
 
-        try {
-          kvdb.close();
-        } catch (final HseException e) {
-          LOGGER.error(e.getMessage(), e);
-        }
+    scanCursors = new KvsCursor[shards.length];
+    scanCursorScans = new int[shards.length];
+    scanCursorUpdateNs = new long[shards.length];
+    scanMerger = new MergedKvsCursor(shards.length, valueBufSize, rangeRouting);
 
-        Hse.fini();
+    if (transactions) {
+      txns = new KvdbTransaction[shards.length];
+      txnActive = new boolean[shards.length];
+
+      try {
+        for (int i = 0; i < shards.length; i++) {
+          txns[i] = shards[i].kvdb.transaction();
+        }
+      } catch (final HseException e) {
+        throw new DBException(e);
       }
     }
   }
 
-  @Override
-  public Status delete(final String table, final String key) {
-    try {
-      kvs.delete(key);
-      return Status.OK;
-    } catch (final HseException e) {
-      LOGGER.error(e.getMessage(), e);
-      return Status.ERROR;
+  /**
+   * Whether client threads may share a DB instance, whose next operation
+   * for another thread would overwrite the buffers under this one's views.
+   * The instances of a run of phases serve its largest phase, so any
+   * db.instances may be shared there.
+   */
+  private static boolean isShared(final Properties props) {
+    final int instances = Integer.parseInt(props.getProperty(Client.DB_INSTANCES_PROPERTY,
+        Client.DB_INSTANCES_PROPERTY_DEFAULT));
+    if (instances <= 0) {
+      return false;
     }
+    return props.getProperty(Client.PHASES_PROPERTY) != null
+        || instances < Integer.parseInt(props.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
   }
 
-  @Override
-  public Status insert(final String table, final String key, final Map<String, ByteIterator> values) {
-    try {
-      kvs.put(key, serializeValues(values));
-      return Status.OK;
-    } catch (final IOException | HseException e) {
-      LOGGER.error(e.getMessage(), e);
-      return Status.ERROR;
-    }
+  /**
+   * Whether the properties are those of a bulk load with HseBulkLoadWorkload.
+   */
+  private static boolean isBulkLoad(final Properties props) {
+    return HseBulkLoadWorkload.class.getName().equals(props.getProperty(Client.WORKLOAD_PROPERTY))
+        && !Boolean.parseBoolean(props.getProperty(Client.DO_TRANSACTIONS_PROPERTY, "true"));
   }
 
-  @Override
-  public Status read(final String table, final String key, Set<String> fields, Map<String, ByteIterator> result) {
-    try {
-      final Optional<Integer> valueLen = kvs.get(key, valueBuffer);
-      assert valueLen.isPresent();
+  /**
+   * Take the transaction batching and compaction of a run or phase: a bulk
+   * load batches its puts into transactions and ends with a compaction,
+   * unless told otherwise.
+   */
+  private static void initBulkMode(final Properties props) {
+    final boolean bulkLoad = isBulkLoad(props);
+    txnOpsPerCommit = Integer.parseInt(props.getProperty("hse.transactions.ops", bulkLoad
+        ? props.getProperty(HseBulkLoadWorkload.BATCH_PROPERTY, HseBulkLoadWorkload.BATCH_PROPERTY_DEFAULT) : "1"));
+    compactOnCleanup = bulkLoad && Boolean.parseBoolean(props.getProperty("hse.bulk.compact", "true"));
+  }
+
+  /**
+   * Parse the record layout and whether records are chunked.
+   */
+  private static void initLayout(final Properties props, final List<String> kvsCParams) throws DBException {
+    final String layout = props.getProperty("hse.layout", "record");
+    switch (layout) {
+    case "record":
+      fieldLayout = false;
+      break;
+    case "field":
+      fieldLayout = true;
+      break;
+    default:
+      throw new DBException("unknown hse.layout=" + layout);
+    }
 
-      deserializeValues(valueBuffer, fields, result);
+    // Prefix deletes remove exactly one KVS prefix, so unless told otherwise
+    // size it to the workload's prefixes.
+    final boolean prefixDeletes = Double.parseDouble(props.getProperty(CoreWorkload.PREFIX_DELETE_PROPORTION_PROPERTY,
+        CoreWorkload.PREFIX_DELETE_PROPORTION_PROPERTY_DEFAULT)) > 0;
+    if (prefixDeletes && kvsCParams.stream().noneMatch(p -> p.startsWith("prefix.length="))) {
+      kvsCParams.add("prefix.length=" + props.getProperty(CoreWorkload.PREFIX_DELETE_LENGTH_PROPERTY,
+          CoreWorkload.PREFIX_DELETE_LENGTH_PROPERTY_DEFAULT));
+    }
 
-      valueBuffer.clear();
+    // The field layout keeps all fields of a record under one prefix, so
+    // unless told otherwise size the KVS prefix to the shortest record key.
+    if (fieldLayout && kvsCParams.stream().noneMatch(p -> p.startsWith("prefix.length="))) {
+      final int zeroPadding = Integer.parseInt(props.getProperty(CoreWorkload.ZERO_PADDING_PROPERTY,
+          CoreWorkload.ZERO_PADDING_PROPERTY_DEFAULT));
+      kvsCParams.add("prefix.length=" + Math.min("user".length() + Math.max(zeroPadding, 1),
+          Limits.KVS_PFX_LEN_MAX));
+    }
 
-      return Status.OK;
-    } catch (final HseException e) {
-      LOGGER.error(e.getMessage(), e);
-      return Status.ERROR;
+    kvsPrefixLen = kvsCParams.stream().filter(p -> p.startsWith("prefix.length="))
+        .mapToInt(p -> Integer.parseInt(p.substring("prefix.length=".length()))).reduce((a, b) -> b).orElse(0);
+
+    chunking = Boolean.parseBoolean(props.getProperty("hse.chunking", "false"));
+    if (chunking && fieldLayout) {
+      throw new DBException("hse.chunking requires hse.layout=record");
     }
   }
 
-  @Override
-  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
-      Vector<HashMap<String, ByteIterator>> result) {
-    try (final KvsCursor cursor = kvs.cursor()) {
-      final Optional<Integer> foundLen = cursor.seek(startkey, (byte[]) null);
-      if (!foundLen.isPresent() || foundLen.get() == 0) {
-        LOGGER.error("Scan failed for startkey=" + startkey);
-        return Status.ERROR;
-      }
+  /**
+   * Parse the hse.sync policy, starting the shared syncer if there is one.
+   */
+  private static void initSync(final Properties props) throws DBException {
+    final String policy = props.getProperty("hse.sync", "never");
+    switch (policy) {
+    case "never":
+      syncOpsPerSync = 0;
+      break;
+    case "ops":
+      syncOpsPerSync = Integer.parseInt(props.getProperty("hse.sync.ops", "1"));
+      break;
+    case "interval":
+      syncOpsPerSync = 0;
+      syncer = new HseSyncer(kvdbs, Long.parseLong(props.getProperty("hse.sync.interval.ms", "1000")));
+      syncer.start();
+      break;
+    default:
+      throw new DBException("unknown hse.sync=" + policy);
+    }
+  }
 
-      result.ensureCapacity(recordcount);
+  /**
+   * Parse how records are routed to shards.
+   */
+  private static void initRouting(final Properties props) throws DBException {
+    final String routing = props.getProperty("hse.shard.routing", "hash");
+    switch (routing) {
+    case "hash":
+      rangeRouting = false;
+      break;
+    case "range":
+      rangeRouting = true;
+      break;
+    default:
+      throw new DBException("unknown hse.shard.routing=" + routing);
+    }
 
-      for (int i = 0; i < recordcount; i++) {
-        cursor.read(keyBuffer, valueBuffer);
+    if (rangeRouting) {
+      final List<String> splits = paramsToList(props.getProperty("hse.shard.splits"));
 
-        final HashMap<String, ByteIterator> map = new HashMap<>();
-        deserializeValues(valueBuffer, fields, map);
+      // By default split on the leading digit of the record number.
+      if (splits.isEmpty()) {
+        for (int i = 1; i < shards.length; i++) {
+          splits.add("user" + (1 + i * 9 / shards.length));
+        }
+      }
 
-        keyBuffer.clear();
-        valueBuffer.clear();
+      if (splits.size() != shards.length - 1) {
+        throw new DBException("hse.shard.splits must have one key fewer than hse.kvdb.home");
+      }
 
-        result.add(map);
+      shardSplits = splits.stream().toArray(String[]::new);
+      for (int i = 1; i < shardSplits.length; i++) {
+        if (shardSplits[i - 1].compareTo(shardSplits[i]) > 0) {
+          throw new DBException("hse.shard.splits must be in ascending order");
+        }
       }
+    }
+  }
+
+  /**
+   * Open the KVDB and KVS of one shard, creating them unless they have
+   * already been created.
+   */
+  private static Shard openShard(final int index, final Path home, final List<String> kvdbCParams,
+      final List<String> kvdbRParams, final List<String> kvsCParams, final List<String> kvsRParams)
+      throws DBException {
+    final Kvdb kvdb = openKvdb(home, kvdbCParams, kvdbRParams);
+
+    return new Shard(index, kvdb, openKvs(kvdb, kvsName, kvsCParams, kvsRParams));
+  }
+
+  /**
+   * Open a KVDB, creating it unless it has already been created.
+   */
+  static Kvdb openKvdb(final Path home, final List<String> cParams, final List<String> rParams)
+      throws DBException {
+    try {
+      Kvdb.create(home, cParams.stream().toArray(String[]::new));
     } catch (final HseException e) {
-      LOGGER.error(e.getMessage(), e);
-      return Status.ERROR;
-    } catch (final EOFException e) {
-      return Status.OK;
+      if (Errno.valueOf(e.getErrno()) != Errno.EEXIST) {
+        throw new DBException(e);
+      }
     }
 
-    return Status.OK;
+    try {
+      return Kvdb.open(home, rParams.stream().toArray(String[]::new));
+    } catch (final HseException e) {
+      throw new DBException(e);
+    }
   }
 
-  @Override
-  public Status update(final String table, final String key, final Map<String, ByteIterator> values) {
+  /**
+   * Open a KVS, creating it unless it has already been created.
+   */
+  static Kvs openKvs(final Kvdb kvdb, final String name, final List<String> cParams, final List<String> rParams)
+      throws DBException {
     try {
-      kvs.put(key, serializeValues(values));
-      return Status.OK;
-    } catch (final IOException | HseException e) {
-      LOGGER.error(e.getMessage(), e);
-      return Status.ERROR;
+      kvdb.kvsCreate(name, cParams.stream().toArray(String[]::new));
+    } catch (final HseException e) {
+      if (Errno.valueOf(e.getErrno()) != Errno.EEXIST) {
+        throw new DBException(e);
+      }
     }
+
+    try {
+      return kvdb.kvsOpen(name, rParams.stream().toArray(String[]::new));
+    } catch (final HseException e) {
+      throw new DBException(e);
+    }
+  }
+
+  /**
+   * Commit the open transactions of this instance, so that the next phase
+   * sees every record of this one. Once every instance has ended the phase,
+   * compact after a bulk load and take the bulk mode of the next phase.
+   */
+  @Override
+  public void endPhase(final Properties next) throws DBException {
+    if (txns != null && txnAnyActive()) {
+      try {
+        txnCommit();
+      } catch (final HseException e) {
+        throw new DBException(e);
+      }
+    }
+    rmwKey = null;
+
+    synchronized (HseClient.class) {
+      if (PHASE_ENDS.incrementAndGet() < REFERENCES.get()) {
+        return;
+      }
+      PHASE_ENDS.set(0);
+
+      if (compactOnCleanup) {
+        compact();
+      }
+
+      if (next != null) {
+        initBulkMode(next);
+      } else {
+        compactOnCleanup = false;
+      }
+    }
+  }
+
+  @Override
+  public void cleanup() {
+    for (int i = 0; i < shards.length; i++) {
+      if (scanCursors[i] != null) {
+        closeCursor(scanCursors[i]);
+        scanCursors[i] = null;
+      }
+    }
+
+    if (txns != null) {
+      try {
+        if (txnAnyActive()) {
+          txnCommit();
+        }
+
+        for (final KvdbTransaction txn : txns) {
+          if (txn != null) {
+            txn.close();
+          }
+        }
+      } catch (final HseException e) {
+        LOGGER.error(e.getMessage(), e);
+      }
+    }
+
+    synchronized (HseClient.class) {
+      if (REFERENCES.getAndDecrement() == 1) {
+        if (syncer != null) {
+          syncer.shutdown();
+          syncer = null;
+        }
+
+        if (compactOnCleanup) {
+          compact();
+        }
+
+        if (stats != null) {
+          stats.shutdown();
+          stats = null;
+        }
+
+        for (final Shard shard : shards) {
+          try {
+            shard.kvs.close();
+          } catch (final HseException e) {
+            LOGGER.error(e.getMessage(), e);
+          }
+
+          try {
+            shard.kvdb.close();
+          } catch (final HseException e) {
+            LOGGER.error(e.getMessage(), e);
+          }
+        }
+
+        // The next phase may reopen the KVDBs with other contents.
+        tombstonedPrefixes = new String[0];
+
+        Hse.fini();
+      }
+    }
+  }
+
+  @Override
+  public Status delete(final String table, final String key) {
+    final int shard = shardOf(key);
+    final long st = System.nanoTime();
+
+    try {
+      txnBegin(false, key, shard, shard);
+
+      final Status status;
+      if (fieldLayout) {
+        status = deleteFields(shard, key);
+      } else {
+        if (chunking) {
+          deleteChunks(shard, key);
+        }
+
+        kvsDelete(shard, serializeKey(key));
+        status = Status.OK;
+      }
+
+      txnEnd(null);
+      syncCount();
+      return status;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      txnAbort();
+      return Status.ERROR;
+    } finally {
+      measureShard(shard, st);
+    }
+  }
+
+  @Override
+  public Status insert(final String table, final String key, final Map<String, ByteIterator> values) {
+    return put(false, key, values);
+  }
+
+  @Override
+  public Status read(final String table, final String key, Set<String> fields, Map<String, ByteIterator> result) {
+    final int shard = shardOf(key);
+    final long st = System.nanoTime();
+
+    try {
+      txnBegin(false, key, shard, shard);
+
+      final Status status;
+      if (fieldLayout) {
+        status = readFields(shard, key, fields, result);
+      } else {
+        final ByteBuffer record = getRecord(shard, key);
+
+        if (record != null) {
+          readViews.release();
+          deserializeValues(record, fields, result, useViews ? readViews : null);
+          status = Status.OK;
+        } else {
+          status = Status.NOT_FOUND;
+        }
+
+        valueBuffer.clear();
+      }
+
+      txnEnd(key);
+      return status;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      txnAbort();
+      return Status.ERROR;
+    } finally {
+      measureShard(shard, st);
+      measureTombstoned(READ_TOMBSTONED, key, st);
+    }
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+      Vector<HashMap<String, ByteIterator>> result) {
+    final int shard = shardOf(startkey);
+    final long st = System.nanoTime();
+
+    // Hash routing scatters a key range over every shard, range routing
+    // leaves the rest of the range in the shards that follow.
+    final int firstShard = rangeRouting ? shard : 0;
+
+    scanMerger.clear();
+    // valueBuffer may have grown for larger records since the last scan.
+    scanMerger.reserve(valueBuffer.capacity());
+
+    try {
+      txnBegin(false, startkey, firstShard, shards.length - 1);
+
+      for (int i = firstShard; i < shards.length; i++) {
+        scanMerger.add(acquireScanCursor(i));
+      }
+
+      final long seekSt = System.nanoTime();
+      final boolean found = scanMerger.seek(startkey);
+      final long seekEn = System.nanoTime();
+      measurements.measure(CURSOR_SEEK, (seekEn - seekSt) / 1000);
+
+      if (!found) {
+        LOGGER.error("Scan failed for startkey=" + startkey);
+        txnEnd(null);
+        return Status.ERROR;
+      }
+
+      result.ensureCapacity(recordcount);
+
+      if (useViews) {
+        resetStash();
+      }
+
+      try {
+        if (fieldLayout) {
+          scanFields(scanMerger, recordcount, fields, result);
+        } else {
+          while (result.size() < recordcount) {
+            scanMerger.read(keyBuffer, valueBuffer);
+
+            ByteBuffer record = valueBuffer;
+            if (chunking) {
+              if (isChunkKey()) {
+                // A chunk left over from a longer earlier version of a record.
+                keyBuffer.clear();
+                valueBuffer.clear();
+                continue;
+              }
+
+              if (valueBuffer.remaining() == CHUNK_LEN) {
+                record = scanChunks(scanMerger);
+              }
+            }
+
+            final HashMap<String, ByteIterator> map = new HashMap<>();
+            if (useViews) {
+              deserializeValues(stash(record), fields, map, stashViews);
+            } else {
+              deserializeValues(record, fields, map, null);
+            }
+
+            keyBuffer.clear();
+            valueBuffer.clear();
+
+            result.add(map);
+          }
+        }
+      } catch (final EOFException e) {
+        keyBuffer.clear();
+        valueBuffer.clear();
+      }
+
+      txnEnd(null);
+      return Status.OK;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      txnAbort();
+
+      // Don't trust reused cursors after an error; they are closed below and
+      // new ones are created by the next scan.
+      for (int i = firstShard; i < shards.length; i++) {
+        scanCursors[i] = null;
+      }
+
+      return Status.ERROR;
+    } finally {
+      for (int i = 0; i < scanMerger.size(); i++) {
+        final KvsCursor cursor = scanMerger.get(i);
+        if (cursor != scanCursors[firstShard + i]) {
+          closeCursor(cursor);
+        }
+      }
+
+      scanMerger.clear();
+      measureShard(shard, st);
+      measureTombstoned(SCAN_TOMBSTONED, startkey, st);
+    }
+  }
+
+  /**
+   * Get a cursor on a shard for a scan: either a new one, or the thread's
+   * reused cursor with its view updated if it has exceeded its staleness
+   * bounds.
+   */
+  private KvsCursor acquireScanCursor(final int shard) throws HseException {
+    // A transaction's cursor is bound to it, so it cannot outlive one scan.
+    if (!reuseCursor || txns != null) {
+      return createCursor(shard, null);
+    }
+
+    final long now = System.nanoTime();
+
+    if (scanCursors[shard] == null) {
+      scanCursors[shard] = createCursor(shard, null);
+      scanCursorScans[shard] = 0;
+      scanCursorUpdateNs[shard] = now;
+    } else if ((cursorStaleOps > 0 && scanCursorScans[shard] >= cursorStaleOps)
+        || (cursorStaleNs > 0 && now - scanCursorUpdateNs[shard] >= cursorStaleNs)) {
+      scanCursors[shard].updateView();
+      final long en = System.nanoTime();
+      measurements.measure(CURSOR_UPDATE, (en - now) / 1000);
+
+      scanCursorScans[shard] = 0;
+      scanCursorUpdateNs[shard] = en;
+    }
+
+    scanCursorScans[shard]++;
+
+    return scanCursors[shard];
+  }
+
+  /**
+   * Create a cursor, recording how long that took.
+   *
+   * @param filter optional prefix filter
+   */
+  private KvsCursor createCursor(final int shard, final ByteBuffer filter) throws HseException {
+    final long st = System.nanoTime();
+    final KvsCursor cursor = kvsCursor(shard, filter);
+    final long en = System.nanoTime();
+    measurements.measure(CURSOR_CREATE, (en - st) / 1000);
+
+    return cursor;
+  }
+
+  private static void closeCursor(final KvsCursor cursor) {
+    try {
+      cursor.close();
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public Status update(final String table, final String key, final Map<String, ByteIterator> values) {
+    return put(true, key, values);
+  }
+
+  /**
+   * HSE has no multi-get, so a batch reads its keys one by one in key order,
+   * which keeps neighbouring lookups close together in each shard.
+   */
+  @Override
+  public Status batchRead(final String table, final List<String> keys, final Set<String> fields,
+      final List<Map<String, ByteIterator>> results) {
+    final int first = results.size();
+    for (int i = 0; i < keys.size(); i++) {
+      results.add(new HashMap<>());
+    }
+
+    Status status = Status.OK;
+    for (final int i : keyOrder(keys)) {
+      final Map<String, ByteIterator> result = results.get(first + i);
+      status = firstFailure(status, read(table, keys.get(i), fields, result));
+      if (useViews) {
+        detachViews(result);
+      }
+    }
+
+    return status;
+  }
+
+  @Override
+  public Status batchInsert(final String table, final List<String> keys,
+      final List<Map<String, ByteIterator>> values) {
+    return putBatch(false, keys, values);
+  }
+
+  @Override
+  public Status batchUpdate(final String table, final List<String> keys,
+      final List<Map<String, ByteIterator>> values) {
+    return putBatch(true, keys, values);
+  }
+
+  /**
+   * Common body of batchInsert and batchUpdate: put the records in key order.
+   */
+  private Status putBatch(final boolean update, final List<String> keys,
+      final List<Map<String, ByteIterator>> values) {
+    Status status = Status.OK;
+    for (final int i : keyOrder(keys)) {
+      status = firstFailure(status, put(update, keys.get(i), values.get(i)));
+    }
+
+    return status;
+  }
+
+  /**
+   * The indexes of a batch's keys, in key order.
+   */
+  private static List<Integer> keyOrder(final List<String> keys) {
+    final List<Integer> order = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      order.add(i);
+    }
+    order.sort((a, b) -> keys.get(a).compareTo(keys.get(b)));
+
+    return order;
+  }
+
+  /**
+   * Replace the views in a result with copies, since the next read re-uses
+   * the views and the buffers under them.
+   */
+  private static void detachViews(final Map<String, ByteIterator> result) {
+    for (final Map.Entry<String, ByteIterator> entry : result.entrySet()) {
+      entry.setValue(new ByteArrayByteIterator(entry.getValue().toArray()));
+    }
+  }
+
+  /**
+   * Common body of insert and update.
+   */
+  private Status put(final boolean update, final String key, final Map<String, ByteIterator> values) {
+    final int shard = shardOf(key);
+    final long st = System.nanoTime();
+
+    try {
+      txnBegin(update, key, shard, shard);
+
+      if (fieldLayout) {
+        putFields(shard, key, values);
+      } else if (!putRecord(shard, key, serializeValues(values))) {
+        txnAbort();
+        return Status.ERROR;
+      }
+
+      txnEnd(null);
+      syncCount();
+      return Status.OK;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      txnAbort();
+      return Status.ERROR;
+    } finally {
+      measureShard(shard, st);
+    }
+  }
+
+  /**
+   * Record layout: put a record, split into chunks if chunking is enabled.
+   *
+   * The first chunk is stored under the record key and the others under the
+   * record key, CHUNK_SEPARATOR and the chunk number. Every chunk but the last
+   * is CHUNK_LEN bytes and the last is shorter, if need be empty, so readers
+   * know where the record ends without knowing its length, and ignore any
+   * chunks left over from a longer earlier version of the record.
+   *
+   * @return false if the record is too large to store
+   */
+  private boolean putRecord(final int shard, final String key, final ByteBuffer value) throws HseException {
+    if (!chunking) {
+      if (value.remaining() > Limits.KVS_VALUE_LEN_MAX) {
+        LOGGER.error("Record for key=" + key + " exceeds the HSE value size limit " + Limits.KVS_VALUE_LEN_MAX
+            + "; set hse.chunking=true to store it");
+        return false;
+      }
+
+      kvsPut(shard, serializeKey(key), value);
+      return true;
+    }
+
+    final int end = value.limit();
+    int off = value.position();
+
+    for (int chunk = 0;; chunk++) {
+      final int len = Math.min(CHUNK_LEN, end - off);
+      value.limit(off + len);
+      value.position(off);
+
+      kvsPut(shard, chunk == 0 ? serializeKey(key) : serializeChunkKey(key, chunk), value);
+
+      off += len;
+      if (len < CHUNK_LEN) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Record layout: get a record, leaving it ready to be deserialized.
+   *
+   * @return valueBuffer, or recordBuffer if the record was reassembled from
+   *         chunks, or null if there is no such record
+   */
+  private ByteBuffer getRecord(final int shard, final String key) throws HseException {
+    valueBuffer.clear();
+    final Optional<Integer> valueLen = kvsGet(shard, serializeKey(key), valueBuffer);
+    if (!valueLen.isPresent()) {
+      return null;
+    }
+
+    // Written with a larger field length than this thread has seen.
+    if (valueLen.get() > valueBuffer.capacity()) {
+      reserveValueBuffer(valueLen.get());
+      valueBuffer.clear();
+      kvsGet(shard, serializeKey(key), valueBuffer);
+    }
+
+    if (!chunking || valueBuffer.remaining() < CHUNK_LEN) {
+      return valueBuffer;
+    }
+
+    recordBuffer.clear();
+    appendChunk();
+
+    try (final KvsCursor cursor = createCursor(shard, serializeChunkPrefix(key))) {
+      do {
+        keyBuffer.clear();
+        valueBuffer.clear();
+        cursor.read(keyBuffer, valueBuffer);
+      } while (appendChunk());
+    } catch (final EOFException e) {
+      LOGGER.error("Chunked record for key=" + key + " is missing its last chunk");
+      return null;
+    } finally {
+      keyBuffer.clear();
+    }
+
+    recordBuffer.flip();
+
+    return recordBuffer;
+  }
+
+  /**
+   * Chunking: a scan has read the first chunk of a chunked record into
+   * valueBuffer. Read the rest of its chunks, which follow it in key order.
+   *
+   * @return recordBuffer, ready to be deserialized
+   */
+  private ByteBuffer scanChunks(final MergedKvsCursor cursor) throws HseException, EOFException {
+    recordBuffer.clear();
+    appendChunk();
+
+    do {
+      keyBuffer.clear();
+      valueBuffer.clear();
+      cursor.read(keyBuffer, valueBuffer);
+    } while (appendChunk());
+
+    recordBuffer.flip();
+
+    return recordBuffer;
+  }
+
+  /**
+   * Chunking: append the chunk in valueBuffer to recordBuffer, growing it if
+   * needed.
+   *
+   * @return whether more chunks follow
+   */
+  private boolean appendChunk() {
+    final int len = valueBuffer.remaining();
+
+    if (recordBuffer.remaining() < len) {
+      final ByteBuffer grown = ByteBuffer.allocateDirect(
+          grownCapacity(recordBuffer.capacity(), (long) recordBuffer.position() + len));
+      recordBuffer.flip();
+      grown.put(recordBuffer);
+      recordBuffer = grown;
+    }
+
+    recordBuffer.put(valueBuffer);
+
+    return len == CHUNK_LEN;
+  }
+
+  /**
+   * Chunking: whether the key in keyBuffer is that of a chunk rather than of
+   * a record.
+   */
+  private boolean isChunkKey() {
+    for (int i = keyBuffer.position(); i < keyBuffer.limit(); i++) {
+      if (keyBuffer.get(i) == CHUNK_SEPARATOR) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Chunking: delete every chunk of a record but the first, including any
+   * left over from longer earlier versions of it.
+   */
+  private void deleteChunks(final int shard, final String key) throws HseException {
+    try (final KvsCursor cursor = createCursor(shard, serializeChunkPrefix(key))) {
+      while (true) {
+        keyBuffer.clear();
+        valueBuffer.clear();
+        cursor.read(keyBuffer, valueBuffer);
+
+        kvsDelete(shard, keyBuffer);
+      }
+    } catch (final EOFException e) {
+      // Deleted every chunk of the record.
+    }
+
+    keyBuffer.clear();
+    valueBuffer.clear();
+  }
+
+  /**
+   * Delete every record under a KVS prefix with a single prefix tombstone on
+   * every shard. The prefix must be exactly the KVS prefix length.
+   */
+  @Override
+  public Status prefixDelete(final String table, final String prefix) {
+    if (serializeKey(prefix).remaining() != kvsPrefixLen) {
+      LOGGER.error("Prefix " + prefix + " is not the KVS prefix length " + kvsPrefixLen);
+      return Status.BAD_REQUEST;
+    }
+
+    try {
+      txnBegin(false, prefix, 0, shards.length - 1);
+
+      // Hash routing scatters a prefix over every shard.
+      for (int i = 0; i < shards.length; i++) {
+        kvsPrefixDelete(i, serializeKey(prefix));
+      }
+
+      addTombstonedPrefix(prefix);
+
+      txnEnd(null);
+      syncCount();
+      return Status.OK;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      txnAbort();
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Make all writes durable: those of committed transactions in transaction
+   * mode.
+   */
+  @Override
+  public Status sync() {
+    try {
+      for (final Kvdb kvdb : kvdbs) {
+        kvdb.sync();
+      }
+
+      return Status.OK;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Compact every KVDB, waiting for the compactions to finish, and record the
+   * time taken as COMPACT.
+   */
+  private static void compact() {
+    final long st = System.nanoTime();
+
+    try {
+      for (final Kvdb kvdb : kvdbs) {
+        kvdb.compact();
+      }
+
+      for (final Kvdb kvdb : kvdbs) {
+        while (kvdb.getCompactStatus().isActive()) {
+          Thread.sleep(COMPACT_POLL_MS);
+        }
+      }
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      return;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+
+    final long en = System.nanoTime();
+    Measurements.getMeasurements().measure(COMPACT, (en - st) / 1000);
+  }
+
+  /**
+   * hse.sync=ops: account for a completed write, syncing every
+   * hse.sync.ops writes of this thread.
+   */
+  private void syncCount() throws HseException {
+    if (syncOpsPerSync > 0 && ++syncOps >= syncOpsPerSync) {
+      syncOps = 0;
+      HseSyncer.sync(kvdbs, measurements);
+    }
+  }
+
+  /**
+   * The shard holding a record. In the field layout all fields of a record
+   * are routed by the record key, so they stay together.
+   */
+  private static int shardOf(final String key) {
+    if (shards.length == 1) {
+      return 0;
+    }
+
+    if (rangeRouting) {
+      int lo = 0;
+      int hi = shardSplits.length;
+      while (lo < hi) {
+        final int mid = (lo + hi) >>> 1;
+        if (key.compareTo(shardSplits[mid]) < 0) {
+          hi = mid;
+        } else {
+          lo = mid + 1;
+        }
+      }
+
+      return lo;
+    }
+
+    // 64-bit FNV-1a, which unlike String.hashCode() mixes well for keys
+    // differing only in their last digits.
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash ^= key.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+
+    return (int) Math.floorMod(hash, (long) shards.length);
+  }
+
+  /**
+   * With more than one shard, record per-shard operation counts and latencies.
+   */
+  private void measureShard(final int shard, final long startNanos) {
+    if (shards.length > 1) {
+      measurements.measure(shards[shard].opName, (System.nanoTime() - startNanos) / 1000);
+    }
+  }
+
+  /**
+   * Record the latency of an operation starting at a key under a deleted
+   * prefix, which has to get past the prefix's tombstone.
+   */
+  private void measureTombstoned(final String name, final String key, final long startNanos) {
+    final String[] prefixes = tombstonedPrefixes;
+    if (prefixes.length == 0 || key.length() < kvsPrefixLen) {
+      return;
+    }
+
+    // Binary search for the prefix of key, without taking it as a substring.
+    int low = 0;
+    int high = prefixes.length - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int cmp = comparePrefix(prefixes[mid], key);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        measurements.measure(name, (System.nanoTime() - startNanos) / 1000);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Compare a prefix with the start of key, in String order.
+   */
+  private static int comparePrefix(final String prefix, final String key) {
+    for (int i = 0; i < prefix.length(); i++) {
+      final int cmp = prefix.charAt(i) - key.charAt(i);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+
+    return 0;
+  }
+
+  private static synchronized void addTombstonedPrefix(final String prefix) {
+    final String[] prefixes = tombstonedPrefixes;
+    final int index = Arrays.binarySearch(prefixes, prefix);
+    if (index >= 0) {
+      return;
+    }
+
+    final int insert = -index - 1;
+    final String[] added = new String[prefixes.length + 1];
+    System.arraycopy(prefixes, 0, added, 0, insert);
+    added[insert] = prefix;
+    System.arraycopy(prefixes, insert, added, insert + 1, prefixes.length - insert);
+    tombstonedPrefixes = added;
+  }
+
+  /**
+   * Transaction mode: make sure the thread's transactions on shards first
+   * through last are active before an operation on key.
+   *
+   * A read leaves its transaction open so that, if the next operation is an
+   * update of the same key, the pair (a read-modify-write) commits as one
+   * transaction. Otherwise the read is counted as an operation on its own.
+   */
+  private void txnBegin(final boolean update, final String key, final int first, final int last)
+      throws HseException {
+    if (txns == null) {
+      return;
+    }
+
+    if (rmwKey != null && !(update && key.equals(rmwKey))) {
+      rmwKey = null;
+      txnCount();
+    }
+
+    for (int i = first; i <= last; i++) {
+      if (!txnActive[i]) {
+        txns[i].begin();
+        txnActive[i] = true;
+      }
+    }
+  }
+
+  /**
+   * Transaction mode: account for a completed operation, committing once the
+   * transaction holds hse.transactions.ops operations.
+   *
+   * @param readKey the key read by the operation, or null if not a read
+   */
+  private void txnEnd(final String readKey) throws HseException {
+    if (txns == null) {
+      return;
+    }
+
+    if (readKey != null) {
+      rmwKey = readKey;
+      return;
+    }
+
+    rmwKey = null;
+    txnCount();
+  }
+
+  private void txnCount() throws HseException {
+    if (++txnOps >= txnOpsPerCommit) {
+      txnCommit();
+    }
+  }
+
+  /**
+   * Commit the thread's active transactions, one per shard touched.
+   */
+  private void txnCommit() throws HseException {
+    final long st = System.nanoTime();
+    try {
+      for (int i = 0; i < txns.length; i++) {
+        if (txnActive[i]) {
+          txnActive[i] = false;
+          txns[i].commit();
+        }
+      }
+    } finally {
+      txnOps = 0;
+    }
+    final long en = System.nanoTime();
+
+    measurements.measure(TXN_COMMIT, (en - st) / 1000);
+  }
+
+  /**
+   * Transaction mode: abort the thread's transactions after a failed
+   * operation.
+   */
+  private void txnAbort() {
+    if (txns == null || !txnAnyActive()) {
+      return;
+    }
+
+    final long st = System.nanoTime();
+    for (int i = 0; i < txns.length; i++) {
+      if (txnActive[i]) {
+        txnActive[i] = false;
+        try {
+          txns[i].abort();
+        } catch (final HseException e) {
+          LOGGER.error(e.getMessage(), e);
+        }
+      }
+    }
+    final long en = System.nanoTime();
+
+    txnOps = 0;
+    rmwKey = null;
+
+    measurements.measure(TXN_ABORT, (en - st) / 1000);
+  }
+
+  private boolean txnAnyActive() {
+    for (final boolean active : txnActive) {
+      if (active) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private void kvsPut(final int shard, final ByteBuffer key, final ByteBuffer value) throws HseException {
+    if (stats != null) {
+      stats.ingest(key.remaining() + value.remaining());
+    }
+
+    if (txns == null) {
+      shards[shard].kvs.put(key, value);
+    } else {
+      shards[shard].kvs.put(key, value, txns[shard]);
+    }
+  }
+
+  private Optional<Integer> kvsGet(final int shard, final ByteBuffer key, final ByteBuffer value)
+      throws HseException {
+    return txns == null ? shards[shard].kvs.get(key, value) : shards[shard].kvs.get(key, value, txns[shard]);
+  }
+
+  private void kvsDelete(final int shard, final ByteBuffer key) throws HseException {
+    if (txns == null) {
+      shards[shard].kvs.delete(key);
+    } else {
+      shards[shard].kvs.delete(key, txns[shard]);
+    }
+  }
+
+  private void kvsPrefixDelete(final int shard, final ByteBuffer prefix) throws HseException {
+    if (txns == null) {
+      shards[shard].kvs.prefixDelete(prefix);
+    } else {
+      shards[shard].kvs.prefixDelete(prefix, txns[shard]);
+    }
+  }
+
+  /**
+   * @param filter optional prefix filter
+   */
+  private KvsCursor kvsCursor(final int shard, final ByteBuffer filter) throws HseException {
+    final Kvs kvs = shards[shard].kvs;
+
+    if (txns != null) {
+      return kvs.cursor(filter, txns[shard]);
+    }
+
+    return filter == null ? kvs.cursor() : kvs.cursor(filter);
+  }
+
+  /**
+   * Field layout: store each field as its own key, so an update of one field
+   * writes only that field.
+   */
+  private Status putFields(final int shard, final String key, final Map<String, ByteIterator> values)
+      throws HseException {
+    for (final Map.Entry<String, ByteIterator> value : values.entrySet()) {
+      kvsPut(shard, serializeFieldKey(key, value.getKey()), serializeValue(value.getValue()));
+    }
+
+    return Status.OK;
+  }
+
+  /**
+   * Field layout: point-get the requested fields, or rebuild the whole record
+   * with a prefix cursor.
+   */
+  private Status readFields(final int shard, final String key, final Set<String> fields,
+      final Map<String, ByteIterator> result) throws HseException {
+    if (useViews) {
+      resetStash();
+    }
+
+    if (fields != null) {
+      for (final String field : fields) {
+        valueBuffer.clear();
+        if (kvsGet(shard, serializeFieldKey(key, field), valueBuffer).isPresent()) {
+          result.put(field, fieldValue());
+        }
+      }
+    } else {
+      final int prefixLen = serializeRecordPrefix(key).remaining();
+
+      try (final KvsCursor cursor = createCursor(shard, prefixBuffer)) {
+        while (true) {
+          keyBuffer.clear();
+          valueBuffer.clear();
+          cursor.read(keyBuffer, valueBuffer);
+
+          keyBuffer.position(prefixLen);
+          result.put(deserializeFieldName(keyBuffer, keyBuffer.remaining()), fieldValue());
+        }
+      } catch (final EOFException e) {
+        // Read every field of the record.
+      }
+    }
+
+    keyBuffer.clear();
+    valueBuffer.clear();
+
+    return result.isEmpty() ? Status.NOT_FOUND : Status.OK;
+  }
+
+  /**
+   * Field layout: starting from positioned cursors, gather consecutive
+   * fields into records until recordcount records have been read.
+   */
+  private void scanFields(final MergedKvsCursor cursor, final int recordcount, final Set<String> fields,
+      final Vector<HashMap<String, ByteIterator>> result) throws HseException {
+    HashMap<String, ByteIterator> map = null;
+    int records = 0;
+
+    scanRecordKeyLen = -1;
+
+    try {
+      while (true) {
+        keyBuffer.clear();
+        valueBuffer.clear();
+        cursor.read(keyBuffer, valueBuffer);
+
+        int sep = 0;
+        while (sep < keyBuffer.limit() && keyBuffer.get(sep) != FIELD_SEPARATOR) {
+          sep++;
+        }
+
+        if (!isScanRecordKey(sep)) {
+          if (records == recordcount) {
+            break;
+          }
+
+          for (int i = 0; i < sep; i++) {
+            scanRecordKey[i] = keyBuffer.get(i);
+          }
+          scanRecordKeyLen = sep;
+
+          map = new HashMap<>();
+          result.add(map);
+          records++;
+        }
+
+        if (sep == keyBuffer.limit()) {
+          continue;
+        }
+
+        keyBuffer.position(sep + 1);
+        final String field = deserializeFieldName(keyBuffer, keyBuffer.remaining());
+        if (fields == null || fields.contains(field)) {
+          map.put(field, fieldValue());
+        }
+      }
+    } catch (final EOFException e) {
+      // Ran off the end of the KVS.
+    }
+
+    keyBuffer.clear();
+    valueBuffer.clear();
+  }
+
+  /**
+   * Whether the first len bytes of keyBuffer are the current scan record key.
+   */
+  private boolean isScanRecordKey(final int len) {
+    if (len != scanRecordKeyLen) {
+      return false;
+    }
+
+    for (int i = 0; i < len; i++) {
+      if (keyBuffer.get(i) != scanRecordKey[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Field layout: delete every field of a record.
+   */
+  private Status deleteFields(final int shard, final String key) throws HseException {
+    serializeRecordPrefix(key);
+
+    try (final KvsCursor cursor = createCursor(shard, prefixBuffer)) {
+      while (true) {
+        keyBuffer.clear();
+        valueBuffer.clear();
+        cursor.read(keyBuffer, valueBuffer);
+
+        kvsDelete(shard, keyBuffer);
+      }
+    } catch (final EOFException e) {
+      // Deleted every field of the record.
+    }
+
+    keyBuffer.clear();
+    valueBuffer.clear();
+
+    return Status.OK;
   }
 }
@@ -0,0 +1,276 @@
+/**
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright (C) 2022 Micron Technology, Inc.
+ */
+
+package site.ycsb.db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.github.hse_project.hse.HseException;
+import io.github.hse_project.hse.Kvdb;
+import io.github.hse_project.hse.Mclass;
+import io.github.hse_project.hse.MclassInfo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import site.ycsb.measurements.Measurements;
+
+/**
+ * Samples HSE storage engine statistics every status.interval seconds and
+ * records them as measurements, the way StatusThread records JVM stats, so
+ * that they show up in the status line and in the exported report next to
+ * the operation latencies.
+ *
+ * Three kinds of statistics are sampled:
+ * <ul>
+ * <li>HSE-INGEST-KEYS and HSE-INGEST-KB: keys and kilobytes written by the
+ * client threads during the interval.</li>
+ * <li>HSE-MCLASS-&lt;name&gt;-ALLOCATED-MB and -USED-MB: on-media bytes of every
+ * configured media class, summed over all KVDBs.</li>
+ * <li>HSE-&lt;name&gt;: the change during the interval of each counter named in
+ * hse.stats.rest.counters, read from the KVDB's REST socket.</li>
+ * </ul>
+ */
+final class HseStatsSampler extends Thread {
+  private static final Logger LOGGER = LoggerFactory.getLogger(HseStatsSampler.class);
+
+  private static final long MB = 1024 * 1024;
+
+  private final Kvdb[] kvdbs;
+  private final long intervalNs;
+  private final String restSocket;
+  private final List<RestCounter> restCounters;
+  private final Measurements measurements = Measurements.getMeasurements();
+
+  private final LongAdder ingestKeys = new LongAdder();
+  private final LongAdder ingestBytes = new LongAdder();
+  private long lastIngestKeys;
+  private long lastIngestBytes;
+
+  /**
+   * A cumulative counter served by the REST socket.
+   */
+  private static final class RestCounter {
+    private final String name;
+    private final String path;
+    private final Pattern pattern;
+    private long last = -1;
+
+    RestCounter(final String name, final String path, final String field) {
+      this.name = "HSE-" + name;
+      this.path = path;
+      // Matches both JSON ("field": 1) and YAML (field: 1) output.
+      this.pattern = Pattern.compile("\"?" + Pattern.quote(field) + "\"?\\s*:\\s*(\\d+)");
+    }
+  }
+
+  private HseStatsSampler(final Kvdb[] kvdbs, final long intervalNs, final String restSocket,
+      final List<RestCounter> restCounters) {
+    super("HseStatsSampler");
+    setDaemon(true);
+
+    this.kvdbs = kvdbs;
+    this.intervalNs = intervalNs;
+    this.restSocket = restSocket;
+    this.restCounters = restCounters;
+  }
+
+  /**
+   * Start sampling the given KVDBs if hse.stats is set.
+   *
+   * @return the running sampler, or null if sampling is disabled
+   */
+  static HseStatsSampler start(final Properties props, final Kvdb[] kvdbs) {
+    if (!Boolean.parseBoolean(props.getProperty("hse.stats", "false"))) {
+      return null;
+    }
+
+    final List<RestCounter> counters = new ArrayList<>();
+    final String restSocket = props.getProperty("hse.stats.rest.socket");
+
+    // Each counter is NAME=PATH#FIELD.
+    for (final String counter : HseClient.paramsToList(props.getProperty("hse.stats.rest.counters"))) {
+      final int eq = counter.indexOf('=');
+      final int hash = counter.lastIndexOf('#');
+      if (eq <= 0 || hash < eq) {
+        throw new IllegalArgumentException("hse.stats.rest.counters entry must be NAME=PATH#FIELD: " + counter);
+      }
+
+      counters.add(new RestCounter(counter.substring(0, eq), counter.substring(eq + 1, hash),
+          counter.substring(hash + 1)));
+    }
+
+    if (!counters.isEmpty() && restSocket == null) {
+      throw new IllegalArgumentException("hse.stats.rest.counters requires hse.stats.rest.socket");
+    }
+
+    final HseStatsSampler sampler = new HseStatsSampler(kvdbs,
+        TimeUnit.SECONDS.toNanos(Integer.parseInt(props.getProperty("status.interval", "10"))),
+        restSocket, counters);
+    sampler.start();
+
+    return sampler;
+  }
+
+  /**
+   * Account for a key-value pair written by a client thread.
+   */
+  void ingest(final int bytes) {
+    ingestKeys.increment();
+    ingestBytes.add(bytes);
+  }
+
+  /**
+   * Stop sampling, taking one last sample. Must be called before the KVDBs
+   * are closed.
+   */
+  void shutdown() {
+    interrupt();
+
+    try {
+      join();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void run() {
+    long deadline = System.nanoTime() + intervalNs;
+
+    while (!isInterrupted()) {
+      final long sleepNs = deadline - System.nanoTime();
+      if (sleepNs > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleepNs);
+        } catch (final InterruptedException e) {
+          break;
+        }
+      }
+
+      sample();
+      deadline += intervalNs;
+    }
+
+    sample();
+  }
+
+  private void sample() {
+    final long keys = ingestKeys.sum();
+    final long bytes = ingestBytes.sum();
+    measurements.measure("HSE-INGEST-KEYS", keys - lastIngestKeys);
+    measurements.measure("HSE-INGEST-KB", (bytes - lastIngestBytes) / 1024);
+    lastIngestKeys = keys;
+    lastIngestBytes = bytes;
+
+    sampleMclasses();
+
+    if (!restCounters.isEmpty()) {
+      sampleRestCounters();
+    }
+  }
+
+  private void sampleMclasses() {
+    for (final Mclass mclass : Mclass.values()) {
+      long allocated = 0;
+      long used = 0;
+      boolean configured = false;
+
+      for (final Kvdb kvdb : kvdbs) {
+        if (!kvdb.isMclassConfigured(mclass)) {
+          continue;
+        }
+
+        try {
+          final MclassInfo info = kvdb.getMclassInfo(mclass);
+          allocated += info.getAllocatedBytes();
+          used += info.getUsedBytes();
+          configured = true;
+        } catch (final HseException e) {
+          LOGGER.warn("Unable to sample media class " + mclass, e);
+        }
+      }
+
+      if (configured) {
+        final String name = "HSE-MCLASS-" + mclass.name().toUpperCase(Locale.ROOT);
+        measurements.measure(name + "-ALLOCATED-MB", allocated / MB);
+        measurements.measure(name + "-USED-MB", used / MB);
+      }
+    }
+  }
+
+  private void sampleRestCounters() {
+    // Fetch each distinct path once per sample.
+    final Map<String, String> responses = new LinkedHashMap<>();
+
+    for (final RestCounter counter : restCounters) {
+      String body = responses.get(counter.path);
+      if (body == null) {
+        try {
+          body = restGet(counter.path);
+        } catch (final IOException e) {
+          LOGGER.warn("Unable to read " + counter.path + " from " + restSocket, e);
+          body = "";
+        }
+        responses.put(counter.path, body);
+      }
+
+      final Matcher matcher = counter.pattern.matcher(body);
+      if (!matcher.find()) {
+        continue;
+      }
+
+      final long value = Long.parseLong(matcher.group(1));
+      if (counter.last >= 0) {
+        measurements.measure(counter.name, value - counter.last);
+      }
+      counter.last = value;
+    }
+  }
+
+  /**
+   * A minimal HTTP/1.0 GET over the REST UNIX socket, which the JDK cannot
+   * open by itself.
+   *
+   * @return the response body
+   */
+  private String restGet(final String path) throws IOException {
+    try (final UnixSocketChannel channel = UnixSocketChannel.open(new UnixSocketAddress(restSocket))) {
+      final OutputStream out = Channels.newOutputStream(channel);
+      out.write(("GET " + path + " HTTP/1.0\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+
+      final InputStream in = Channels.newInputStream(channel);
+      final ByteArrayOutputStream response = new ByteArrayOutputStream();
+      final byte[] buf = new byte[4096];
+      for (int len = in.read(buf); len >= 0; len = in.read(buf)) {
+        response.write(buf, 0, len);
+      }
+
+      final String text = new String(response.toByteArray(), StandardCharsets.UTF_8);
+      final int bodyStart = text.indexOf("\r\n\r\n");
+
+      return bodyStart < 0 ? text : text.substring(bodyStart + 4);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright (C) 2022 Micron Technology, Inc.
+ */
+
+package site.ycsb.db;
+
+import java.util.concurrent.TimeUnit;
+
+import io.github.hse_project.hse.HseException;
+import io.github.hse_project.hse.Kvdb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import site.ycsb.measurements.Measurements;
+
+/**
+ * Syncs the KVDBs every hse.sync.interval.ms milliseconds on behalf of all
+ * client threads, the way a group-commit writer would.
+ */
+final class HseSyncer extends Thread {
+  private static final Logger LOGGER = LoggerFactory.getLogger(HseSyncer.class);
+
+  /** The latency of the policy's syncs, kept apart from SYNC, that of the workload's syncs. */
+  private static final String SYNC_POLICY = "SYNC-POLICY";
+
+  private final Kvdb[] kvdbs;
+  private final long intervalNs;
+  private final Measurements measurements = Measurements.getMeasurements();
+
+  HseSyncer(final Kvdb[] kvdbs, final long intervalMs) {
+    super("HseSyncer");
+    setDaemon(true);
+
+    this.kvdbs = kvdbs;
+    this.intervalNs = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+  }
+
+  /**
+   * Sync every KVDB, recording the latency as SYNC-POLICY.
+   */
+  static void sync(final Kvdb[] kvdbs, final Measurements measurements) throws HseException {
+    final long st = System.nanoTime();
+    for (final Kvdb kvdb : kvdbs) {
+      kvdb.sync();
+    }
+    final long en = System.nanoTime();
+
+    measurements.measure(SYNC_POLICY, (en - st) / 1000);
+  }
+
+  /**
+   * Stop syncing. Must be called before the KVDBs are closed.
+   */
+  void shutdown() {
+    interrupt();
+
+    try {
+      join();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void run() {
+    long deadline = System.nanoTime() + intervalNs;
+
+    while (!isInterrupted()) {
+      final long sleepNs = deadline - System.nanoTime();
+      if (sleepNs > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleepNs);
+        } catch (final InterruptedException e) {
+          break;
+        }
+      }
+
+      try {
+        sync(kvdbs, measurements);
+      } catch (final HseException e) {
+        LOGGER.error(e.getMessage(), e);
+      }
+
+      // Don't try to catch up after a sync longer than the interval.
+      deadline = Math.max(deadline + intervalNs, System.nanoTime());
+    }
+  }
+}
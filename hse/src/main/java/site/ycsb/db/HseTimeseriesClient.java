@@ -0,0 +1,593 @@
+/**
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright (C) 2022 Micron Technology, Inc.
+ */
+
+package site.ycsb.db;
+
+import java.io.EOFException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.hse_project.hse.Hse;
+import io.github.hse_project.hse.HseException;
+import io.github.hse_project.hse.Kvdb;
+import io.github.hse_project.hse.Kvs;
+import io.github.hse_project.hse.KvsCursor;
+import io.github.hse_project.hse.Limits;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import site.ycsb.ByteIterator;
+import site.ycsb.DBException;
+import site.ycsb.Status;
+import site.ycsb.TimeseriesDB;
+import site.ycsb.workloads.CoreWorkload;
+
+/**
+ * HSE implementation of the YCSB time series benchmark.
+ *
+ * Every data point is one key-value pair in a prefix KVS. The key is
+ *
+ * <pre>
+ * metric id (8 bytes) | (0x00 tag key 0x00 tag value)... | 0x01 | timestamp (8 bytes)
+ * </pre>
+ *
+ * where the metric id is a hash of the metric name and is the KVS prefix,
+ * tags are in tag key order, and the timestamp is big-endian with its sign
+ * bit flipped so that keys sort in time order. All points of a series are
+ * therefore contiguous and in time order, and a time range of one series is
+ * read with a single seek. The value is a type byte followed by the 8 byte
+ * long or double.
+ *
+ * Tag keys and values must not contain the bytes 0x00 to 0x02, which holds
+ * for the printable strings generated by TimeSeriesWorkload.
+ */
+public class HseTimeseriesClient extends TimeseriesDB {
+  private static final Logger LOGGER = LoggerFactory.getLogger(HseTimeseriesClient.class);
+  private static final AtomicInteger REFERENCES = new AtomicInteger(0);
+
+  private static final int METRIC_ID_LEN = Long.BYTES;
+  private static final int VALUE_LEN = 1 + Long.BYTES;
+
+  private static final byte TAG_SEPARATOR = 0;
+  private static final byte SERIES_END = 1;
+  private static final byte SERIES_SKIP = 2;
+
+  private static final byte LONG_VALUE = 0;
+  private static final byte DOUBLE_VALUE = 1;
+
+  // Bound on the number of downsampling buckets of a single scan
+  private static final long MAX_BUCKETS = 1 << 20;
+
+  private static Kvdb kvdb;
+  private static Kvs kvs;
+  private static String[] tagKeys;
+  private static HseStatsSampler stats;
+
+  private ByteBuffer keyBuffer;
+  private ByteBuffer valueBuffer;
+  private ByteBuffer seekBuffer;
+  private ByteBuffer prefixBuffer;
+
+  // Series body (key up to the series end) of the point last read by a walk
+  private final byte[] seriesKey = new byte[Limits.KVS_KEY_LEN_MAX];
+  private int seriesKeyLen;
+
+  // Per-bucket aggregates of the current scan
+  private long[] counts = new long[1];
+  private double[] sums = new double[1];
+  private double[] mins = new double[1];
+  private double[] maxs = new double[1];
+
+  /**
+   * What to do with each point found by a walk over the series of a metric.
+   */
+  private enum WalkAction {
+    COUNT,
+    AGGREGATE,
+    DELETE
+  }
+
+  @Override
+  public void init() throws DBException {
+    super.init();
+
+    synchronized (HseTimeseriesClient.class) {
+      if (REFERENCES.getAndIncrement() == 0) {
+        final Properties props = getProperties();
+
+        Optional.ofNullable(props.get("hse.jniLibrary")).ifPresent(s -> {
+            Hse.loadLibrary(Paths.get((String)s));
+          }
+        );
+
+        final Path config = Optional.ofNullable(props.getProperty("hse.config"))
+            .map(c -> Paths.get(c)).orElse(null);
+
+        final List<String> hseGParams = HseClient.paramsToList(props.getProperty("hse.gparams"));
+
+        try {
+          Hse.init(config, hseGParams.stream().toArray(String[]::new));
+        } catch (final HseException e) {
+          throw new DBException(e);
+        }
+
+        final List<String> homes = HseClient.paramsToList(props.getProperty("hse.kvdb.home"));
+        if (homes.size() != 1) {
+          throw new DBException("hse.kvdb.home must name a single KVDB");
+        }
+
+        final List<String> kvsCParams = HseClient.paramsToList(props.getProperty("hse.kvs.cparams"));
+        if (kvsCParams.stream().noneMatch(p -> p.startsWith("prefix.length="))) {
+          kvsCParams.add("prefix.length=" + METRIC_ID_LEN);
+        }
+
+        kvdb = HseClient.openKvdb(Paths.get(homes.get(0)),
+            HseClient.paramsToList(props.getProperty("hse.kvdb.cparams")),
+            HseClient.paramsToList(props.getProperty("hse.kvdb.rparams")));
+
+        kvs = HseClient.openKvs(kvdb,
+            props.getProperty(CoreWorkload.TABLENAME_PROPERTY, CoreWorkload.TABLENAME_PROPERTY_DEFAULT),
+            kvsCParams, HseClient.paramsToList(props.getProperty("hse.kvs.rparams")));
+
+        tagKeys = getPossibleTagKeys(props);
+        Arrays.sort(tagKeys);
+
+        try {
+          stats = HseStatsSampler.start(props, new Kvdb[] {kvdb});
+        } catch (final IllegalArgumentException e) {
+          throw new DBException(e);
+        }
+      }
+    }
+
+    keyBuffer = ByteBuffer.allocateDirect(Limits.KVS_KEY_LEN_MAX);
+    valueBuffer = ByteBuffer.allocateDirect(VALUE_LEN);
+    seekBuffer = ByteBuffer.allocateDirect(Limits.KVS_KEY_LEN_MAX);
+    prefixBuffer = ByteBuffer.allocateDirect(METRIC_ID_LEN);
+  }
+
+  @Override
+  public void cleanup() {
+    synchronized (HseTimeseriesClient.class) {
+      if (REFERENCES.getAndDecrement() == 1) {
+        if (stats != null) {
+          stats.shutdown();
+          stats = null;
+        }
+
+        try {
+          kvs.close();
+        } catch (final HseException e) {
+          LOGGER.error(e.getMessage(), e);
+        }
+
+        try {
+          kvdb.close();
+        } catch (final HseException e) {
+          LOGGER.error(e.getMessage(), e);
+        }
+
+        Hse.fini();
+      }
+    }
+  }
+
+  @Override
+  protected Status insert(final String metric, final long timestamp, final long value,
+      final Map<String, ByteIterator> tags) {
+    valueBuffer.clear();
+    valueBuffer.put(LONG_VALUE).putLong(value).flip();
+
+    return put(metric, timestamp, tags);
+  }
+
+  @Override
+  protected Status insert(final String metric, final long timestamp, final double value,
+      final Map<String, ByteIterator> tags) {
+    valueBuffer.clear();
+    valueBuffer.put(DOUBLE_VALUE).putDouble(value).flip();
+
+    return put(metric, timestamp, tags);
+  }
+
+  /**
+   * Points are immutable key-value pairs, so an update just overwrites the
+   * point.
+   */
+  @Override
+  public Status update(final String table, final String key, final Map<String, ByteIterator> values) {
+    return insert(table, key, values);
+  }
+
+  @Override
+  public Status sync() {
+    try {
+      kvdb.sync();
+      return Status.OK;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    }
+  }
+
+  private Status put(final String metric, final long timestamp, final Map<String, ByteIterator> tags) {
+    final SortedMap<String, ByteIterator> sorted = tags instanceof SortedMap
+        ? (SortedMap<String, ByteIterator>) tags : new TreeMap<>(tags);
+
+    try {
+      keyBuffer.clear();
+      keyBuffer.putLong(metricId(metric));
+      for (final Map.Entry<String, ByteIterator> tag : sorted.entrySet()) {
+        keyBuffer.put(TAG_SEPARATOR);
+        keyBuffer.put(tag.getKey().getBytes(StandardCharsets.UTF_8));
+        keyBuffer.put(TAG_SEPARATOR);
+        keyBuffer.put(tag.getValue().toString().getBytes(StandardCharsets.UTF_8));
+      }
+      keyBuffer.put(SERIES_END).putLong(timestamp ^ Long.MIN_VALUE).flip();
+
+      if (stats != null) {
+        stats.ingest(keyBuffer.remaining() + valueBuffer.remaining());
+      }
+
+      kvs.put(keyBuffer, valueBuffer);
+      return Status.OK;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    } catch (final BufferOverflowException e) {
+      LOGGER.error("Tags of metric " + metric + " exceed the maximum key length", e);
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  protected Status read(final String metric, final long timestamp, final Map<String, List<String>> tags) {
+    try {
+      // When the query names a single series, get the point directly.
+      if (isSingleSeries(tags)) {
+        keyBuffer.clear();
+        keyBuffer.putLong(metricId(metric));
+        for (final String tagKey : tagKeys) {
+          keyBuffer.put(TAG_SEPARATOR);
+          keyBuffer.put(tagKey.getBytes(StandardCharsets.UTF_8));
+          keyBuffer.put(TAG_SEPARATOR);
+          keyBuffer.put(tags.get(tagKey).get(0).getBytes(StandardCharsets.UTF_8));
+        }
+        keyBuffer.put(SERIES_END).putLong(timestamp ^ Long.MIN_VALUE).flip();
+
+        valueBuffer.clear();
+        return kvs.get(keyBuffer, valueBuffer).isPresent() ? Status.OK : Status.NOT_FOUND;
+      }
+
+      return walk(metric, timestamp, timestamp, tags, WalkAction.COUNT, 0, 0) > 0 ? Status.OK : Status.NOT_FOUND;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    } catch (final BufferOverflowException e) {
+      LOGGER.error("Tags of metric " + metric + " exceed the maximum key length", e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Aggregate the matching points across all matching series, into one value
+   * per downsampling interval if one is given, or into a single value.
+   */
+  @Override
+  protected Status scan(final String metric, final long startTs, final long endTs,
+      final Map<String, List<String>> tags, final AggregationOperation aggreg, final int timeValue,
+      final TimeUnit timeUnit) {
+    if (endTs < startTs) {
+      return Status.BAD_REQUEST;
+    }
+
+    final long buckets = timeValue > 0 ? (endTs - startTs) / timeValue + 1 : 1;
+    if (buckets > MAX_BUCKETS) {
+      return Status.BAD_REQUEST;
+    }
+
+    try {
+      if (aggreg == AggregationOperation.NONE) {
+        walk(metric, startTs, endTs, tags, WalkAction.COUNT, 0, 0);
+        return Status.OK;
+      }
+
+      resetBuckets((int) buckets);
+      walk(metric, startTs, endTs, tags, WalkAction.AGGREGATE, startTs, timeValue);
+
+      final HashMap<Long, Double> result = new HashMap<>();
+      for (int i = 0; i < buckets; i++) {
+        if (counts[i] > 0) {
+          result.put(startTs + (long) i * timeValue, aggregate(aggreg, i));
+        }
+      }
+
+      if (debug) {
+        LOGGER.info("SCAN " + metric + " " + tags + " " + aggreg + timeValue + ": " + result);
+      }
+
+      return Status.OK;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Delete the points matching a key in the format produced by
+   * TimeSeriesWorkload: the series key (unused, as it is for inserts), tag
+   * pairs or bare tag keys, and a timestamp or time range, separated by the
+   * delete delimiter.
+   */
+  @Override
+  public Status delete(final String table, final String key) {
+    final Map<String, List<String>> tags = new HashMap<>();
+    long startTs = Long.MIN_VALUE;
+    long endTs = Long.MAX_VALUE;
+
+    final String[] parts = key.split(deleteDelimiter);
+    for (int i = 1; i < parts.length; i++) {
+      final String[] pair = parts[i].split(tagPairDelimiter);
+
+      if (pair[0].equals(timestampKey)) {
+        final String[] range = pair[1].split(queryTimeSpanDelimiter);
+        startTs = Long.parseLong(range[0]);
+        endTs = range.length > 1 ? Long.parseLong(range[1]) : startTs;
+      } else if (pair.length > 1) {
+        tags.computeIfAbsent(pair[0], k -> new ArrayList<>()).add(pair[1]);
+      }
+      // A bare tag key deletes the series with any value for it.
+    }
+
+    try {
+      walk(table, startTs, endTs, tags, WalkAction.DELETE, 0, 0);
+      return Status.OK;
+    } catch (final HseException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Visit the points from startTs to endTs inclusive of every series of a
+   * metric whose tags match. Within a series the cursor seeks straight to
+   * startTs, and past the series once beyond endTs or if the series does
+   * not match.
+   *
+   * @return the number of points visited
+   */
+  private long walk(final String metric, final long startTs, final long endTs, final Map<String, List<String>> tags,
+      final WalkAction action, final long bucketStart, final int bucketWidth) throws HseException {
+    final long id = metricId(metric);
+    long points = 0;
+
+    prefixBuffer.clear();
+    prefixBuffer.putLong(id).flip();
+
+    try (final KvsCursor cursor = kvs.cursor(prefixBuffer)) {
+      seriesKeyLen = -1;
+
+      while (true) {
+        keyBuffer.clear();
+        valueBuffer.clear();
+        try {
+          cursor.read(keyBuffer, valueBuffer);
+        } catch (final EOFException e) {
+          break;
+        }
+
+        final int bodyLen = keyBuffer.limit() - 1 - Long.BYTES;
+        final long timestamp = keyBuffer.getLong(bodyLen + 1) ^ Long.MIN_VALUE;
+
+        if (!isSeries(bodyLen)) {
+          seriesKeyLen = bodyLen;
+          for (int i = 0; i < bodyLen; i++) {
+            seriesKey[i] = keyBuffer.get(i);
+          }
+
+          if (!matches(tags)) {
+            seekSeries(cursor, SERIES_SKIP, 0);
+            continue;
+          }
+
+          if (timestamp < startTs) {
+            seekSeries(cursor, SERIES_END, startTs);
+            continue;
+          }
+        }
+
+        if (timestamp > endTs) {
+          seekSeries(cursor, SERIES_SKIP, 0);
+          continue;
+        }
+
+        points++;
+
+        switch (action) {
+        case AGGREGATE:
+          accumulate(bucketWidth > 0 ? (int) ((timestamp - bucketStart) / bucketWidth) : 0, value());
+          break;
+        case DELETE:
+          kvs.delete(keyBuffer);
+          break;
+        default:
+          break;
+        }
+      }
+    }
+
+    return points;
+  }
+
+  /**
+   * Reposition a walk within or past the current series: at the given
+   * timestamp if end is SERIES_END, or after every point of the series if
+   * end is SERIES_SKIP.
+   */
+  private void seekSeries(final KvsCursor cursor, final byte end, final long timestamp) throws HseException {
+    seekBuffer.clear();
+    seekBuffer.put(seriesKey, 0, seriesKeyLen).put(end);
+    if (end == SERIES_END) {
+      seekBuffer.putLong(timestamp ^ Long.MIN_VALUE);
+    }
+    seekBuffer.flip();
+
+    cursor.seek(seekBuffer, (ByteBuffer) null);
+  }
+
+  /**
+   * Whether the first len bytes of keyBuffer are the current series body.
+   */
+  private boolean isSeries(final int len) {
+    if (len != seriesKeyLen) {
+      return false;
+    }
+
+    for (int i = len - 1; i >= METRIC_ID_LEN; i--) {
+      if (keyBuffer.get(i) != seriesKey[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Whether the current series has one of the queried values for every
+   * queried tag key.
+   */
+  private boolean matches(final Map<String, List<String>> tags) {
+    if (tags.isEmpty()) {
+      return true;
+    }
+
+    int matched = 0;
+    int pos = METRIC_ID_LEN;
+    while (pos < seriesKeyLen) {
+      final int keyStart = pos + 1;
+      final int keyEnd = next(keyStart);
+      final int valueEnd = next(keyEnd + 1);
+
+      final List<String> values = tags.get(
+          new String(seriesKey, keyStart, keyEnd - keyStart, StandardCharsets.UTF_8));
+      if (values != null) {
+        if (!values.contains(new String(seriesKey, keyEnd + 1, valueEnd - keyEnd - 1, StandardCharsets.UTF_8))) {
+          return false;
+        }
+        matched++;
+      }
+
+      pos = valueEnd;
+    }
+
+    return matched == tags.size();
+  }
+
+  /**
+   * The offset of the tag separator or the end of the series body at or after
+   * pos.
+   */
+  private int next(final int pos) {
+    int i = pos;
+    while (i < seriesKeyLen && seriesKey[i] != TAG_SEPARATOR) {
+      i++;
+    }
+
+    return i;
+  }
+
+  /**
+   * Whether a query names exactly one value for every tag key.
+   */
+  private static boolean isSingleSeries(final Map<String, List<String>> tags) {
+    if (tags.size() != tagKeys.length) {
+      return false;
+    }
+
+    for (final String tagKey : tagKeys) {
+      final List<String> values = tags.get(tagKey);
+      if (values == null || values.size() != 1) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * The value in valueBuffer, as a double.
+   */
+  private double value() {
+    return valueBuffer.get(0) == DOUBLE_VALUE ? valueBuffer.getDouble(1) : valueBuffer.getLong(1);
+  }
+
+  private void resetBuckets(final int buckets) {
+    if (counts.length < buckets) {
+      counts = new long[buckets];
+      sums = new double[buckets];
+      mins = new double[buckets];
+      maxs = new double[buckets];
+    }
+
+    Arrays.fill(counts, 0, buckets, 0);
+    Arrays.fill(sums, 0, buckets, 0);
+    Arrays.fill(mins, 0, buckets, Double.POSITIVE_INFINITY);
+    Arrays.fill(maxs, 0, buckets, Double.NEGATIVE_INFINITY);
+  }
+
+  private void accumulate(final int bucket, final double value) {
+    counts[bucket]++;
+    sums[bucket] += value;
+    mins[bucket] = Math.min(mins[bucket], value);
+    maxs[bucket] = Math.max(maxs[bucket], value);
+  }
+
+  private double aggregate(final AggregationOperation aggreg, final int bucket) {
+    switch (aggreg) {
+    case SUM:
+      return sums[bucket];
+    case AVERAGE:
+      return sums[bucket] / counts[bucket];
+    case COUNT:
+      return counts[bucket];
+    case MAX:
+      return maxs[bucket];
+    case MIN:
+      return mins[bucket];
+    default:
+      throw new IllegalArgumentException("unsupported aggregation " + aggreg);
+    }
+  }
+
+  /**
+   * 64-bit FNV-1a hash of a metric name, used as the fixed length KVS prefix
+   * of all of its points.
+   */
+  private static long metricId(final String metric) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < metric.length(); i++) {
+      hash ^= metric.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+
+    return hash;
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright (C) 2022 Micron Technology, Inc.
+ */
+
+package site.ycsb.db;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import io.github.hse_project.hse.HseException;
+import io.github.hse_project.hse.KvsCursor;
+import io.github.hse_project.hse.Limits;
+
+/**
+ * Reads the cursors of several shards as if they were one cursor, in key
+ * order.
+ *
+ * When the shards hold disjoint, ordered key ranges, the cursors are simply
+ * read one after another. Otherwise the next key of every cursor is buffered
+ * and the smallest one is returned on each read.
+ */
+final class MergedKvsCursor {
+  private final KvsCursor[] cursors;
+  private final ByteBuffer[] headKeys;
+  private final ByteBuffer[] headValues;
+  private final boolean[] live;
+  private final boolean concatenate;
+  private int count;
+  private int current;
+  private String seekKey;
+
+  /**
+   * @param maxCursors   the most cursors that will be merged
+   * @param valueBufSize the size of the largest value, until {@link #reserve(int)}
+   * @param concatenate  whether the cursors hold disjoint key ranges, in the
+   *                     order in which they are added
+   */
+  MergedKvsCursor(final int maxCursors, final int valueBufSize, final boolean concatenate) {
+    this.concatenate = concatenate;
+
+    cursors = new KvsCursor[maxCursors];
+    live = new boolean[maxCursors];
+
+    if (concatenate || maxCursors == 1) {
+      headKeys = null;
+      headValues = null;
+    } else {
+      headKeys = new ByteBuffer[maxCursors];
+      headValues = new ByteBuffer[maxCursors];
+      for (int i = 0; i < maxCursors; i++) {
+        headKeys[i] = ByteBuffer.allocateDirect(Limits.KVS_KEY_LEN_MAX);
+        headValues[i] = ByteBuffer.allocateDirect(valueBufSize);
+      }
+    }
+  }
+
+  /**
+   * Make sure every buffered value can hold len bytes, replacing the buffers
+   * that cannot with larger ones. Like the caller's value buffer, which the
+   * values are read back into, they are never shrunk.
+   */
+  void reserve(final int len) {
+    if (headValues == null) {
+      return;
+    }
+
+    for (int i = 0; i < headValues.length; i++) {
+      if (headValues[i].capacity() < len) {
+        headValues[i] = ByteBuffer.allocateDirect(len);
+      }
+    }
+  }
+
+  /**
+   * Forget the cursors of the previous scan.
+   */
+  void clear() {
+    for (int i = 0; i < count; i++) {
+      cursors[i] = null;
+    }
+
+    count = 0;
+  }
+
+  void add(final KvsCursor cursor) {
+    cursors[count++] = cursor;
+  }
+
+  int size() {
+    return count;
+  }
+
+  KvsCursor get(final int index) {
+    return cursors[index];
+  }
+
+  /**
+   * Position every cursor at the first key greater than or equal to key.
+   *
+   * @return whether there is anything to read
+   */
+  boolean seek(final String key) throws HseException {
+    seekKey = key;
+
+    if (concatenate || headKeys == null) {
+      for (current = 0; current < count; current++) {
+        if (seekOne(current)) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    boolean found = false;
+    for (int i = 0; i < count; i++) {
+      live[i] = seekOne(i) && readHead(i);
+      found |= live[i];
+    }
+
+    return found;
+  }
+
+  /**
+   * Read the next key and value into key and value, leaving them ready to be
+   * read back.
+   *
+   * @throws EOFException once every cursor has been exhausted
+   */
+  void read(final ByteBuffer key, final ByteBuffer value) throws HseException, EOFException {
+    if (concatenate || headKeys == null) {
+      while (true) {
+        if (current == count) {
+          throw new EOFException();
+        }
+
+        try {
+          cursors[current].read(key, value);
+          return;
+        } catch (final EOFException e) {
+          while (++current < count && !seekOne(current)) {
+            // Skip shards with nothing at or after the seek key.
+          }
+        }
+      }
+    }
+
+    int min = -1;
+    for (int i = 0; i < count; i++) {
+      if (live[i] && (min < 0 || compare(headKeys[i], headKeys[min]) < 0)) {
+        min = i;
+      }
+    }
+
+    if (min < 0) {
+      throw new EOFException();
+    }
+
+    key.clear();
+    key.put(headKeys[min]).flip();
+    value.clear();
+    value.put(headValues[min]).flip();
+
+    live[min] = readHead(min);
+  }
+
+  private boolean seekOne(final int index) throws HseException {
+    final Optional<Integer> foundLen = cursors[index].seek(seekKey, (byte[]) null);
+    return foundLen.isPresent() && foundLen.get() != 0;
+  }
+
+  private boolean readHead(final int index) throws HseException {
+    headKeys[index].clear();
+    headValues[index].clear();
+
+    try {
+      cursors[index].read(headKeys[index], headValues[index]);
+      return true;
+    } catch (final EOFException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Compare keys the way HSE does, as unsigned bytes.
+   */
+  private static int compare(final ByteBuffer a, final ByteBuffer b) {
+    final int len = Math.min(a.remaining(), b.remaining());
+
+    for (int i = 0; i < len; i++) {
+      final int cmp = (a.get(a.position() + i) & 0xff) - (b.get(b.position() + i) & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+
+    return a.remaining() - b.remaining();
+  }
+}
@@ -283,6 +283,17 @@ public class JdbcDBClient extends DB {
     return stmt;
   }
 
+  private PreparedStatement createAndCacheBatchReadStatement(StatementType readType, String key)
+      throws SQLException {
+    String read = dbFlavor.createBatchReadStatement(readType, key);
+    PreparedStatement readStatement = getShardConnectionByKey(key).prepareStatement(read);
+    PreparedStatement stmt = cachedStatements.putIfAbsent(readType, readStatement);
+    if (stmt == null) {
+      return readStatement;
+    }
+    return stmt;
+  }
+
   private PreparedStatement createAndCacheDeleteStatement(StatementType deleteType, String key)
       throws SQLException {
     String delete = dbFlavor.createDeleteStatement(deleteType, key);
@@ -497,6 +508,144 @@ public class JdbcDBClient extends DB {
     }
   }
 
+  @Override
+  public Status batchRead(String tableName, List<String> keys, Set<String> fields,
+                          List<Map<String, ByteIterator>> results) {
+    try {
+      // A key may be repeated in a batch: each of its results is filled in
+      Map<String, List<Map<String, ByteIterator>>> resultsByKey = new LinkedHashMap<>();
+      for (String key : keys) {
+        Map<String, ByteIterator> result = new HashMap<>();
+        results.add(result);
+        resultsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(result);
+      }
+
+      // One statement per shard, with a parameter for each of its distinct keys
+      int found = 0;
+      for (List<String> shardKeys : groupByShard(resultsByKey.keySet()).values()) {
+        String firstKey = shardKeys.get(0);
+        StatementType type = new StatementType(StatementType.Type.BATCH_READ, tableName,
+            shardKeys.size(), "", getShardIndexByKey(firstKey));
+        PreparedStatement readStatement = cachedStatements.get(type);
+        if (readStatement == null) {
+          readStatement = createAndCacheBatchReadStatement(type, firstKey);
+        }
+        int index = 1;
+        for (String key : shardKeys) {
+          readStatement.setString(index++, key);
+        }
+        ResultSet resultSet = readStatement.executeQuery();
+        while (resultSet.next()) {
+          List<Map<String, ByteIterator>> keyResults = resultsByKey.get(resultSet.getString(PRIMARY_KEY));
+          found++;
+          if (keyResults != null && fields != null) {
+            for (String field : fields) {
+              String value = resultSet.getString(field);
+              for (Map<String, ByteIterator> result : keyResults) {
+                result.put(field, new StringByteIterator(value));
+              }
+            }
+          }
+        }
+        resultSet.close();
+      }
+      return found < resultsByKey.size() ? Status.NOT_FOUND : Status.OK;
+    } catch (SQLException e) {
+      System.err.println("Error in processing batch read of table " + tableName + ": " + e);
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  public Status batchInsert(String tableName, List<String> keys, List<Map<String, ByteIterator>> values) {
+    try {
+      Set<PreparedStatement> statements = new LinkedHashSet<>();
+      for (int i = 0; i < keys.size(); i++) {
+        String key = keys.get(i);
+        OrderedFieldInfo fieldInfo = getFieldInfo(values.get(i));
+        StatementType type = new StatementType(StatementType.Type.INSERT, tableName,
+            values.get(i).size(), fieldInfo.getFieldKeys(), getShardIndexByKey(key));
+        PreparedStatement insertStatement = cachedStatements.get(type);
+        if (insertStatement == null) {
+          insertStatement = createAndCacheInsertStatement(type, key);
+        }
+        insertStatement.setString(1, key);
+        int index = 2;
+        for (String value: fieldInfo.getFieldValues()) {
+          insertStatement.setString(index++, value);
+        }
+        insertStatement.addBatch();
+        statements.add(insertStatement);
+      }
+      return executeBatches(statements);
+    } catch (SQLException e) {
+      System.err.println("Error in processing batch insert to table: " + tableName + e);
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  public Status batchUpdate(String tableName, List<String> keys, List<Map<String, ByteIterator>> values) {
+    try {
+      Set<PreparedStatement> statements = new LinkedHashSet<>();
+      for (int i = 0; i < keys.size(); i++) {
+        String key = keys.get(i);
+        OrderedFieldInfo fieldInfo = getFieldInfo(values.get(i));
+        StatementType type = new StatementType(StatementType.Type.UPDATE, tableName,
+            values.get(i).size(), fieldInfo.getFieldKeys(), getShardIndexByKey(key));
+        PreparedStatement updateStatement = cachedStatements.get(type);
+        if (updateStatement == null) {
+          updateStatement = createAndCacheUpdateStatement(type, key);
+        }
+        int index = 1;
+        for (String value: fieldInfo.getFieldValues()) {
+          updateStatement.setString(index++, value);
+        }
+        updateStatement.setString(index, key);
+        updateStatement.addBatch();
+        statements.add(updateStatement);
+      }
+      return executeBatches(statements);
+    } catch (SQLException e) {
+      System.err.println("Error in processing batch update to table: " + tableName + e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Groups keys by the shard that contains them, keeping their order within a shard.
+   */
+  private Map<Integer, List<String>> groupByShard(Collection<String> keys) {
+    Map<Integer, List<String>> shards = new LinkedHashMap<>();
+    for (String key : keys) {
+      shards.computeIfAbsent(getShardIndexByKey(key), k -> new ArrayList<>()).add(key);
+    }
+    return shards;
+  }
+
+  /**
+   * Executes the batches added to the given statements, committing them if autoCommit is off.
+   */
+  private Status executeBatches(Set<PreparedStatement> statements) throws SQLException {
+    Status status = Status.OK;
+    Set<Connection> connections = new LinkedHashSet<>();
+    for (PreparedStatement statement : statements) {
+      for (int r : statement.executeBatch()) {
+        // Acceptable values are 1 and SUCCESS_NO_INFO (-2) from reWriteBatchedInserts=true
+        if (r != 1 && r != -2) {
+          status = firstFailure(status, Status.UNEXPECTED_STATE);
+        }
+      }
+      connections.add(statement.getConnection());
+    }
+    if (!autoCommit) {
+      for (Connection conn : connections) {
+        conn.commit();
+      }
+    }
+    return status;
+  }
+
   private OrderedFieldInfo getFieldInfo(Map<String, ByteIterator> values) {
     String fieldKeys = "";
     List<String> fieldValues = new ArrayList<>();
@@ -52,6 +52,11 @@ public abstract class DBFlavor {
    */
   public abstract String createReadStatement(StatementType readType, String key);
 
+  /**
+   * Create and return a SQL statement for reading the rows of as many keys as the statement type has fields.
+   */
+  public abstract String createBatchReadStatement(StatementType readType, String key);
+
   /**
    * Create and return a SQL statement for deleting data.
    */
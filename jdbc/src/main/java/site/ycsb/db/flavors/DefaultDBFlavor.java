@@ -54,6 +54,20 @@ public class DefaultDBFlavor extends DBFlavor {
     return read.toString();
   }
 
+  @Override
+  public String createBatchReadStatement(StatementType readType, String key) {
+    StringBuilder read = new StringBuilder("SELECT * FROM ");
+    read.append(readType.getTableName());
+    read.append(" WHERE ");
+    read.append(JdbcDBClient.PRIMARY_KEY);
+    read.append(" IN (?");
+    for (int i = 1; i < readType.getNumFields(); i++) {
+      read.append(",?");
+    }
+    read.append(")");
+    return read.toString();
+  }
+
   @Override
   public String createDeleteStatement(StatementType deleteType, String key) {
     StringBuilder delete = new StringBuilder("DELETE FROM ");
@@ -21,11 +21,15 @@ import static org.junit.Assert.*;
 
 import site.ycsb.ByteIterator;
 import site.ycsb.DBException;
+import site.ycsb.Status;
 import site.ycsb.StringByteIterator;
 import org.junit.*;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.HashSet;
 import java.util.Set;
@@ -329,6 +333,45 @@ public class JdbcDBClientTest {
         }
     }
 
+    @Test
+    public void batchInsertReadAndUpdateTest() {
+        List<String> keys = Arrays.asList("user0", "user1", "user2");
+        List<Map<String, ByteIterator>> insertMaps = new ArrayList<Map<String, ByteIterator>>();
+        List<Map<String, ByteIterator>> updateMaps = new ArrayList<Map<String, ByteIterator>>();
+        for (String key : keys) {
+            Map<String, ByteIterator> insertMap = new HashMap<String, ByteIterator>();
+            Map<String, ByteIterator> updateMap = new HashMap<String, ByteIterator>();
+            for (int i = 0; i < NUM_FIELDS; i++) {
+                insertMap.put(FIELD_PREFIX + i, new StringByteIterator(buildDeterministicValue(key, FIELD_PREFIX + i)));
+            }
+            updateMap.put(FIELD_PREFIX + 0, new StringByteIterator("updated-" + key));
+            insertMaps.add(insertMap);
+            updateMaps.add(updateMap);
+        }
+
+        assertEquals(Status.OK, jdbcDBClient.batchInsert(TABLE_NAME, keys, insertMaps));
+        assertEquals(Status.OK, jdbcDBClient.batchUpdate(TABLE_NAME, keys, updateMaps));
+
+        Set<String> readFields = new HashSet<String>(Arrays.asList("FIELD0", "FIELD1"));
+        List<Map<String, ByteIterator>> results = new ArrayList<Map<String, ByteIterator>>();
+        Status status = jdbcDBClient.batchRead(TABLE_NAME, Arrays.asList("user2", "user9", "user0"), readFields, results);
+
+        assertEquals("Assert a missing key is reported", Status.NOT_FOUND, status);
+        assertEquals("Assert one result per key", 3, results.size());
+        assertEquals("updated-user2", results.get(0).get("FIELD0").toString());
+        assertEquals(insertMaps.get(2).get("FIELD1").toString(), results.get(0).get("FIELD1").toString());
+        assertTrue("Assert the missing key has no fields", results.get(1).isEmpty());
+        assertEquals("updated-user0", results.get(2).get("FIELD0").toString());
+
+        results.clear();
+        status = jdbcDBClient.batchRead(TABLE_NAME, Arrays.asList("user1", "user0", "user1"), readFields, results);
+        assertEquals("Assert a repeated key is found", Status.OK, status);
+        assertEquals("Assert one result per key", 3, results.size());
+        assertEquals("updated-user1", results.get(0).get("FIELD0").toString());
+        assertEquals("updated-user0", results.get(1).get("FIELD0").toString());
+        assertEquals("updated-user1", results.get(2).get("FIELD0").toString());
+    }
+
     @Test
     public void insertBatchTest() throws DBException {
       insertBatchTest(20);
@@ -18,6 +18,7 @@ package site.ycsb.db;
 
 import static com.allanbank.mongodb.builder.QueryBuilder.where;
 
+import com.allanbank.mongodb.Callback;
 import com.allanbank.mongodb.Durability;
 import com.allanbank.mongodb.LockType;
 import com.allanbank.mongodb.MongoClient;
@@ -38,8 +39,8 @@ import com.allanbank.mongodb.builder.BatchedWrite;
 import com.allanbank.mongodb.builder.BatchedWriteMode;
 import com.allanbank.mongodb.builder.Find;
 import com.allanbank.mongodb.builder.Sort;
+import site.ycsb.AsyncDB;
 import site.ycsb.ByteIterator;
-import site.ycsb.DB;
 import site.ycsb.DBException;
 import site.ycsb.Status;
 
@@ -49,13 +50,20 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * MongoDB asynchronous client for YCSB framework using the <a
  * href="http://www.allanbank.com/mongodb-async-driver/">Asynchronous Java
  * Driver</a>
  * <p>
+ * Operations are issued with the driver's callback API, so with
+ * <code>pipeline.depth</code> above 1 each client thread keeps several of
+ * them in flight.
+ * </p>
+ * <p>
  * See the <code>README.md</code> for configuration information.
  * </p>
  *
@@ -63,7 +71,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @see <a href="http://www.allanbank.com/mongodb-async-driver/">Asynchronous
  *      Java Driver</a>
  */
-public class AsyncMongoDbClient extends DB {
+public class AsyncMongoDbClient extends AsyncDB {
 
   /** Used to include a field in a response. */
   protected static final int INCLUDE = 1;
@@ -136,23 +144,27 @@ public class AsyncMongoDbClient extends DB {
    *          The name of the table
    * @param key
    *          The record key of the record to delete.
-   * @return Zero on success, a non-zero error code on error. See this class's
-   *         description for a discussion of error codes.
+   * @return The future result of the operation. See this class's description
+   *         for a discussion of error codes.
    */
   @Override
-  public final Status delete(final String table, final String key) {
+  public final CompletableFuture<Status> deleteAsync(final String table,
+      final String key) {
     try {
       final MongoCollection collection = database.getCollection(table);
       final Document q = BuilderFactory.start().add("_id", key).build();
-      final long res = collection.delete(q, writeConcern);
-      if (res == 0) {
-        System.err.println("Nothing deleted for key " + key);
-        return Status.NOT_FOUND;
-      }
-      return Status.OK;
+      final StatusCallback<Long> callback = new StatusCallback<Long>(res -> {
+          if (res == 0) {
+            System.err.println("Nothing deleted for key " + key);
+            return Status.NOT_FOUND;
+          }
+          return Status.OK;
+        });
+      collection.deleteAsync(callback, q, writeConcern);
+      return callback.future;
     } catch (final Exception e) {
       System.err.println(e.toString());
-      return Status.ERROR;
+      return CompletableFuture.completedFuture(Status.ERROR);
     }
   }
 
@@ -246,12 +258,12 @@ public class AsyncMongoDbClient extends DB {
    *          The record key of the record to insert.
    * @param values
    *          A HashMap of field/value pairs to insert in the record
-   * @return Zero on success, a non-zero error code on error. See the {@link DB}
-   *         class's description for a discussion of error codes.
+   * @return The future result of the operation. See the {@link site.ycsb.DB} class's
+   *         description for a discussion of error codes.
    */
   @Override
-  public final Status insert(final String table, final String key,
-      final Map<String, ByteIterator> values) {
+  public final CompletableFuture<Status> insertAsync(final String table,
+      final String key, final Map<String, ByteIterator> values) {
     try {
       final MongoCollection collection = database.getCollection(table);
       final DocumentBuilder toInsert =
@@ -261,55 +273,68 @@ public class AsyncMongoDbClient extends DB {
         toInsert.add(entry.getKey(), entry.getValue().toArray());
       }
 
+      // The thread's builder is reused by its next operation, which may be
+      // issued before this one is sent.
+      final Document document = toInsert.build();
+
       // Do an upsert.
       if (batchSize <= 1) {
-        long result;
         if (useUpsert) {
-          result = collection.update(query, toInsert,
+          final StatusCallback<Long> callback = new StatusCallback<Long>(
+              result -> result == 1 ? Status.OK : Status.NOT_FOUND);
+          collection.updateAsync(callback, query, document,
               /* multi= */false, /* upsert= */true, writeConcern);
-        } else {
-          // Return is not stable pre-SERVER-4381. No exception is success.
-          collection.insert(writeConcern, toInsert);
-          result = 1;
+          return callback.future;
         }
-        return result == 1 ? Status.OK : Status.NOT_FOUND;
+
+        // Return is not stable pre-SERVER-4381. No exception is success.
+        final StatusCallback<Integer> callback =
+            new StatusCallback<Integer>(result -> Status.OK);
+        collection.insertAsync(callback, writeConcern, document);
+        return callback.future;
       }
 
       // Use a bulk insert.
       try {
         if (useUpsert) {
-          batchedWrite.update(query, toInsert, /* multi= */false, 
+          batchedWrite.update(query, document, /* multi= */false, 
               /* upsert= */true);
         } else {
-          batchedWrite.insert(toInsert);
+          batchedWrite.insert(document);
         }
         batchedWriteCount += 1;
 
         if (batchedWriteCount < batchSize) {
-          return Status.BATCHED_OK;
+          return CompletableFuture.completedFuture(Status.BATCHED_OK);
         }
 
-        long count = collection.write(batchedWrite);
-        if (count == batchedWriteCount) {
-          batchedWrite.reset().mode(BatchedWriteMode.REORDERED);
-          batchedWriteCount = 0;
-          return Status.OK;
-        }
-
-        System.err.println("Number of inserted documents doesn't match the "
-            + "number sent, " + count + " inserted, sent " + batchedWriteCount);
+        final BatchedWrite write = batchedWrite.build();
+        final int sent = batchedWriteCount;
         batchedWrite.reset().mode(BatchedWriteMode.REORDERED);
         batchedWriteCount = 0;
-        return Status.ERROR;
+
+        final StatusCallback<Long> callback = new StatusCallback<Long>(count -> {
+            if (count == sent) {
+              return Status.OK;
+            }
+
+            System.err.println("Number of inserted documents doesn't match the "
+                + "number sent, " + count + " inserted, sent " + sent);
+            return Status.ERROR;
+          });
+        collection.writeAsync(callback, write);
+        return callback.future;
       } catch (Exception e) {
         System.err.println("Exception while trying bulk insert with "
             + batchedWriteCount);
         e.printStackTrace();
-        return Status.ERROR;
+        batchedWrite.reset().mode(BatchedWriteMode.REORDERED);
+        batchedWriteCount = 0;
+        return CompletableFuture.completedFuture(Status.ERROR);
       }
     } catch (final Exception e) {
       e.printStackTrace();
-      return Status.ERROR;
+      return CompletableFuture.completedFuture(Status.ERROR);
     }
   }
 
@@ -325,17 +350,18 @@ public class AsyncMongoDbClient extends DB {
    *          The list of fields to read, or null for all of them
    * @param result
    *          A HashMap of field/value pairs for the result
-   * @return Zero on success, a non-zero error code on error or "not found".
+   * @return The future result of the operation, NOT_FOUND if there is no
+   *         such record.
    */
   @Override
-  public final Status read(final String table, final String key,
-      final Set<String> fields, final Map<String, ByteIterator> result) {
+  public final CompletableFuture<Status> readAsync(final String table,
+      final String key, final Set<String> fields,
+      final Map<String, ByteIterator> result) {
     try {
       final MongoCollection collection = database.getCollection(table);
-      final DocumentBuilder query =
-          DOCUMENT_BUILDER.get().reset().add("_id", key);
+      final Document query =
+          DOCUMENT_BUILDER.get().reset().add("_id", key).build();
 
-      Document queryResult = null;
       if (fields != null) {
         final DocumentBuilder fieldsToReturn = BuilderFactory.start();
         final Iterator<String> iter = fields.iterator();
@@ -349,24 +375,21 @@ public class AsyncMongoDbClient extends DB {
         fb.setBatchSize(1);
         fb.readPreference(readPreference);
 
-        final MongoIterator<Document> ci = collection.find(fb.build());
-        if (ci.hasNext()) {
-          queryResult = ci.next();
-          ci.close();
-        }
-      } else {
-        queryResult = collection.findOne(query);
+        final StatusCallback<MongoIterator<Document>> callback =
+            new StatusCallback<MongoIterator<Document>>(
+                ci -> readFirst(ci, result));
+        collection.findAsync(callback, fb.build());
+        return callback.future;
       }
 
-      if (queryResult != null) {
-        fillMap(result, queryResult);
-      }
-      return queryResult != null ? Status.OK : Status.NOT_FOUND;
+      final StatusCallback<Document> callback = new StatusCallback<Document>(
+          queryResult -> readOne(queryResult, result));
+      collection.findOneAsync(callback, query);
+      return callback.future;
     } catch (final Exception e) {
       System.err.println(e.toString());
-      return Status.ERROR;
+      return CompletableFuture.completedFuture(Status.ERROR);
     }
-
   }
 
   /**
@@ -384,12 +407,12 @@ public class AsyncMongoDbClient extends DB {
    * @param result
    *          A Vector of HashMaps, where each HashMap is a set field/value
    *          pairs for one record
-   * @return Zero on success, a non-zero error code on error. See the {@link DB}
-   *         class's description for a discussion of error codes.
+   * @return The future result of the operation. See the {@link site.ycsb.DB} class's
+   *         description for a discussion of error codes.
    */
   @Override
-  public final Status scan(final String table, final String startkey,
-      final int recordcount, final Set<String> fields,
+  public final CompletableFuture<Status> scanAsync(final String table,
+      final String startkey, final int recordcount, final Set<String> fields,
       final Vector<HashMap<String, ByteIterator>> result) {
     try {
       final MongoCollection collection = database.getCollection(table);
@@ -410,28 +433,84 @@ public class AsyncMongoDbClient extends DB {
 
       result.ensureCapacity(recordcount);
 
-      final MongoIterator<Document> cursor = collection.find(find);
-      if (!cursor.hasNext()) {
-        System.err.println("Nothing found in scan for key " + startkey);
-        return Status.NOT_FOUND;
-      }
-      while (cursor.hasNext()) {
-        // toMap() returns a Map but result.add() expects a
-        // Map<String,String>. Hence, the suppress warnings.
-        final Document doc = cursor.next();
-        final HashMap<String, ByteIterator> docAsMap =
-            new HashMap<String, ByteIterator>();
+      // The batch size is the record count, so the whole scan arrives with
+      // the first batch and iterating the cursor does not block.
+      final StatusCallback<MongoIterator<Document>> callback =
+          new StatusCallback<MongoIterator<Document>>(
+              cursor -> scanAll(cursor, startkey, result));
+      collection.findAsync(callback, find.build());
+      return callback.future;
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      return CompletableFuture.completedFuture(Status.ERROR);
+    }
+  }
 
-        fillMap(docAsMap, doc);
+  /**
+   * Fills the map with the first document returned by a read.
+   * 
+   * @param ci
+   *          The documents returned by the read.
+   * @param result
+   *          The map to fill with the document's fields.
+   * @return OK, or NOT_FOUND if the read returned no document.
+   */
+  private Status readFirst(final MongoIterator<Document> ci,
+      final Map<String, ByteIterator> result) {
+    if (!ci.hasNext()) {
+      return Status.NOT_FOUND;
+    }
+    fillMap(result, ci.next());
+    ci.close();
+    return Status.OK;
+  }
 
-        result.add(docAsMap);
-      }
+  /**
+   * Fills the map with the document returned by a read.
+   * 
+   * @param queryResult
+   *          The document returned by the read, or null.
+   * @param result
+   *          The map to fill with the document's fields.
+   * @return OK, or NOT_FOUND if the read returned no document.
+   */
+  private Status readOne(final Document queryResult,
+      final Map<String, ByteIterator> result) {
+    if (queryResult == null) {
+      return Status.NOT_FOUND;
+    }
+    fillMap(result, queryResult);
+    return Status.OK;
+  }
 
-      return Status.OK;
-    } catch (final Exception e) {
-      System.err.println(e.toString());
-      return Status.ERROR;
+  /**
+   * Adds each document returned by a scan to the scan's result.
+   * 
+   * @param cursor
+   *          The documents returned by the scan.
+   * @param startkey
+   *          The first key of the scan, for error messages.
+   * @param result
+   *          The vector of maps to add the documents to.
+   * @return OK, or NOT_FOUND if the scan returned no document.
+   */
+  private Status scanAll(final MongoIterator<Document> cursor,
+      final String startkey,
+      final Vector<HashMap<String, ByteIterator>> result) {
+    if (!cursor.hasNext()) {
+      System.err.println("Nothing found in scan for key " + startkey);
+      return Status.NOT_FOUND;
+    }
+    while (cursor.hasNext()) {
+      final Document doc = cursor.next();
+      final HashMap<String, ByteIterator> docAsMap =
+          new HashMap<String, ByteIterator>();
+
+      fillMap(docAsMap, doc);
+
+      result.add(docAsMap);
     }
+    return Status.OK;
   }
 
   /**
@@ -445,12 +524,12 @@ public class AsyncMongoDbClient extends DB {
    *          The record key of the record to write.
    * @param values
    *          A HashMap of field/value pairs to update in the record
-   * @return Zero on success, a non-zero error code on error. See the {@link DB}
-   *         class's description for a discussion of error codes.
+   * @return The future result of the operation. See the {@link site.ycsb.DB} class's
+   *         description for a discussion of error codes.
    */
   @Override
-  public final Status update(final String table, final String key,
-      final Map<String, ByteIterator> values) {
+  public final CompletableFuture<Status> updateAsync(final String table,
+      final String key, final Map<String, ByteIterator> values) {
     try {
       final MongoCollection collection = database.getCollection(table);
       final DocumentBuilder query = BuilderFactory.start().add("_id", key);
@@ -460,12 +539,14 @@ public class AsyncMongoDbClient extends DB {
       for (final Map.Entry<String, ByteIterator> entry : values.entrySet()) {
         fieldsToSet.add(entry.getKey(), entry.getValue().toArray());
       }
-      final long res =
-          collection.update(query, update, false, false, writeConcern);
-      return writeConcern == Durability.NONE || res == 1 ? Status.OK : Status.NOT_FOUND;
+      final StatusCallback<Long> callback = new StatusCallback<Long>(
+          res -> writeConcern == Durability.NONE || res == 1 ? Status.OK : Status.NOT_FOUND);
+      collection.updateAsync(callback, query, update, false, false,
+          writeConcern);
+      return callback.future;
     } catch (final Exception e) {
       System.err.println(e.toString());
-      return Status.ERROR;
+      return CompletableFuture.completedFuture(Status.ERROR);
     }
   }
 
@@ -487,6 +568,50 @@ public class AsyncMongoDbClient extends DB {
     }
   }
 
+  /**
+   * StatusCallback completes a future with the status derived from the result
+   * of an asynchronous request, or with {@link Status#ERROR} if the request
+   * failed.
+   * 
+   * @param <V>
+   *          The type of the request's result.
+   */
+  private static final class StatusCallback<V> implements Callback<V> {
+
+    /** The future result of the operation. */
+    private final CompletableFuture<Status> future =
+        new CompletableFuture<Status>();
+
+    /** Derives the status of the operation from the request's result. */
+    private final Function<V, Status> toStatus;
+
+    /**
+     * Creates a new StatusCallback.
+     * 
+     * @param toStatus
+     *          Derives the status of the operation from the request's result.
+     */
+    public StatusCallback(final Function<V, Status> toStatus) {
+      this.toStatus = toStatus;
+    }
+
+    @Override
+    public void callback(final V result) {
+      try {
+        future.complete(toStatus.apply(result));
+      } catch (final RuntimeException e) {
+        System.err.println(e.toString());
+        future.complete(Status.ERROR);
+      }
+    }
+
+    @Override
+    public void exception(final Throwable thrown) {
+      System.err.println(thrown.toString());
+      future.complete(Status.ERROR);
+    }
+  }
+
   /**
    * BinaryByteArrayIterator provides an adapter from a {@link BinaryElement} to
    * a {@link ByteIterator}.
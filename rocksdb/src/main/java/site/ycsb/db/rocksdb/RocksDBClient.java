@@ -325,6 +325,106 @@ public class RocksDBClient extends DB {
     }
   }
 
+  @Override
+  public Status batchRead(final String table, final List<String> keys, final Set<String> fields,
+      final List<Map<String, ByteIterator>> results) {
+    try {
+      if (!COLUMN_FAMILIES.containsKey(table)) {
+        createColumnFamily(table);
+      }
+
+      final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
+      final List<byte[]> values = multiGet(cf, keys);
+
+      Status status = Status.OK;
+      for (final byte[] value : values) {
+        final Map<String, ByteIterator> result = new HashMap<>();
+        if (value == null) {
+          status = firstFailure(status, Status.NOT_FOUND);
+        } else {
+          deserializeValues(value, fields, result);
+        }
+        results.add(result);
+      }
+      return status;
+    } catch(final RocksDBException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  public Status batchInsert(final String table, final List<String> keys,
+      final List<Map<String, ByteIterator>> values) {
+    try {
+      if (!COLUMN_FAMILIES.containsKey(table)) {
+        createColumnFamily(table);
+      }
+
+      final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
+      try (final WriteBatch batch = new WriteBatch(); final WriteOptions options = new WriteOptions()) {
+        for (int i = 0; i < keys.size(); i++) {
+          batch.put(cf, keys.get(i).getBytes(UTF_8), serializeValues(values.get(i)));
+        }
+        rocksDb.write(options, batch);
+      }
+
+      return Status.OK;
+    } catch(final RocksDBException | IOException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  public Status batchUpdate(final String table, final List<String> keys,
+      final List<Map<String, ByteIterator>> values) {
+    try {
+      if (!COLUMN_FAMILIES.containsKey(table)) {
+        createColumnFamily(table);
+      }
+
+      final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
+      final List<byte[]> currentValues = multiGet(cf, keys);
+
+      Status status = Status.OK;
+      try (final WriteBatch batch = new WriteBatch(); final WriteOptions options = new WriteOptions()) {
+        for (int i = 0; i < keys.size(); i++) {
+          if (currentValues.get(i) == null) {
+            status = firstFailure(status, Status.NOT_FOUND);
+            continue;
+          }
+          final Map<String, ByteIterator> result = new HashMap<>();
+          deserializeValues(currentValues.get(i), null, result);
+
+          //update
+          result.putAll(values.get(i));
+
+          batch.put(cf, keys.get(i).getBytes(UTF_8), serializeValues(result));
+        }
+
+        //store
+        rocksDb.write(options, batch);
+      }
+
+      return status;
+    } catch(final RocksDBException | IOException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Get the values of several keys of a column family with a single MultiGet, null for missing keys.
+   */
+  private List<byte[]> multiGet(final ColumnFamilyHandle cf, final List<String> keys) throws RocksDBException {
+    final List<byte[]> keyBytes = new ArrayList<>(keys.size());
+    for (final String key : keys) {
+      keyBytes.add(key.getBytes(UTF_8));
+    }
+    return rocksDb.multiGetAsList(Collections.nCopies(keys.size(), cf), keyBytes);
+  }
+
   private void saveColumnFamilyNames() throws IOException {
     final Path file = rocksDbDir.resolve(COLUMN_FAMILY_NAMES_FILENAME);
     try(final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, UTF_8))) {
@@ -120,4 +120,29 @@ public class RocksDBClientTest {
     final Status result = instance.scan(MOCK_TABLE, MOCK_KEY3, NUM_RECORDS, fields, resultParam);
     assertEquals(Status.OK, result);
   }
+
+  @Test
+  public void batchInsertUpdateAndRead() throws Exception {
+    final List<String> keys = Arrays.asList(MOCK_KEY0, MOCK_KEY1, MOCK_KEY2);
+    final List<Map<String, ByteIterator>> values = new ArrayList<>();
+    final List<Map<String, ByteIterator>> newValues = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      values.add(MOCK_DATA);
+      newValues.add(Collections.<String, ByteIterator>singletonMap(FIELD_PREFIX + 0,
+          new StringByteIterator("newvalue" + i)));
+    }
+
+    assertEquals(Status.OK, instance.batchInsert(MOCK_TABLE, keys, values));
+    assertEquals(Status.OK, instance.batchUpdate(MOCK_TABLE, keys, newValues));
+
+    final List<Map<String, ByteIterator>> results = new ArrayList<>();
+    final Status result = instance.batchRead(MOCK_TABLE, Arrays.asList(MOCK_KEY0, MOCK_KEY3, MOCK_KEY2),
+        MOCK_DATA.keySet(), results);
+    assertEquals(Status.NOT_FOUND, result);
+    assertEquals(3, results.size());
+    assertEquals("newvalue0", results.get(0).get(FIELD_PREFIX + 0).toString());
+    assertEquals("value1", results.get(0).get(FIELD_PREFIX + 1).toString());
+    assertEquals(0, results.get(1).size());
+    assertEquals("newvalue2", results.get(2).get(FIELD_PREFIX + 0).toString());
+  }
 }